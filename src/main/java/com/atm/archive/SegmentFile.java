@@ -0,0 +1,334 @@
+package com.atm.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compressed, column-oriented file of archived transactions.
+ *
+ * Rows are written sorted by account and time and cut into row groups. Each group stores its
+ * columns one after another (ids, run-length account ids, dictionary types, amounts,
+ * delta-encoded timestamps) and is deflated on its own. A sparse index at the end of the file
+ * keeps the account and time range of every group, so a statement query only inflates the
+ * groups that can contain its rows.
+ *
+ * Layout: [group]... [index] [index offset: long] [MAGIC: int]
+ */
+final class SegmentFile {
+
+    private static final int MAGIC = 0x41544D53; // "ATMS"
+    private static final int GROUP_SIZE = 4096;
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private SegmentFile() {}
+
+    /* ================= WRITING ================= */
+
+    /** Accepts rows already sorted by account id, then creation time. */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final List<StatementEntry> group = new ArrayList<>(GROUP_SIZE);
+        private final List<IndexEntry> index = new ArrayList<>();
+        private long offset;
+        private long rows;
+        private String lastAccount;
+
+        Writer(Path path) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        }
+
+        /** Rows must arrive in account order; the reader stops at the first group past an account. */
+        void add(StatementEntry entry) throws IOException {
+            if (lastAccount != null && entry.accountId().compareTo(lastAccount) < 0) {
+                throw new IOException("Rows out of account order: " + entry.accountId() + " after " + lastAccount);
+            }
+            lastAccount = entry.accountId();
+            group.add(entry);
+            rows++;
+            if (group.size() == GROUP_SIZE) {
+                flushGroup();
+            }
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushGroup();
+
+                long indexOffset = offset;
+                out.writeInt(index.size());
+                for (IndexEntry entry : index) {
+                    out.writeUTF(entry.firstAccount());
+                    out.writeUTF(entry.lastAccount());
+                    out.writeLong(entry.minCreated());
+                    out.writeLong(entry.maxCreated());
+                    out.writeLong(entry.offset());
+                    out.writeInt(entry.length());
+                }
+                out.writeLong(indexOffset);
+                out.writeInt(MAGIC);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void flushGroup() throws IOException {
+            if (group.isEmpty()) {
+                return;
+            }
+
+            long minCreated = Long.MAX_VALUE;
+            long maxCreated = Long.MIN_VALUE;
+            for (StatementEntry e : group) {
+                long created = toMicros(e.createdAt());
+                minCreated = Math.min(minCreated, created);
+                maxCreated = Math.max(maxCreated, created);
+            }
+
+            byte[] block = encode(group);
+            out.write(block);
+            index.add(new IndexEntry(group.get(0).accountId(), group.get(group.size() - 1).accountId(),
+                minCreated, maxCreated, offset, block.length));
+            offset += block.length;
+            group.clear();
+        }
+    }
+
+    private static byte[] encode(List<StatementEntry> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(rows.size());
+
+            long previousId = 0;
+            for (StatementEntry e : rows) {
+                writeVarLong(out, zigZag(e.id() - previousId));
+                previousId = e.id();
+            }
+
+            // Rows are sorted by account, so store each account once with its run length
+            List<String> runAccounts = new ArrayList<>();
+            List<Integer> runLengths = new ArrayList<>();
+            for (StatementEntry e : rows) {
+                int last = runAccounts.size() - 1;
+                if (last >= 0 && runAccounts.get(last).equals(e.accountId())) {
+                    runLengths.set(last, runLengths.get(last) + 1);
+                } else {
+                    runAccounts.add(e.accountId());
+                    runLengths.add(1);
+                }
+            }
+            writeVarLong(out, runAccounts.size());
+            for (int i = 0; i < runAccounts.size(); i++) {
+                out.writeUTF(runAccounts.get(i));
+                writeVarLong(out, runLengths.get(i));
+            }
+
+            Map<String, Integer> types = new LinkedHashMap<>();
+            for (StatementEntry e : rows) {
+                types.putIfAbsent(e.type() == null ? "" : e.type(), types.size());
+            }
+            writeVarLong(out, types.size());
+            for (String type : types.keySet()) {
+                out.writeUTF(type);
+            }
+            for (StatementEntry e : rows) {
+                writeVarLong(out, types.get(e.type() == null ? "" : e.type()));
+            }
+
+            for (StatementEntry e : rows) {
+                out.writeDouble(e.amount());
+            }
+
+            long previousCreated = 0;
+            for (StatementEntry e : rows) {
+                long created = toMicros(e.createdAt());
+                writeVarLong(out, zigZag(created - previousCreated));
+                previousCreated = created;
+            }
+
+            // 0 for a missing time, otherwise 1 + zig-zag offset from created_at
+            for (StatementEntry e : rows) {
+                writeVarLong(out, e.time() == null ? 0 : 1 + zigZag(toMicros(e.time()) - toMicros(e.createdAt())));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /* ================= READING ================= */
+
+    /** Rows of one account with fromMicros <= created_at < toMicros. */
+    static List<StatementEntry> read(Path path, String accountId, long fromMicros, long toMicros)
+            throws IOException {
+        List<StatementEntry> result = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            readFully(channel, trailer, channel.size() - TRAILER_SIZE);
+            trailer.flip();
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+
+            ByteBuffer indexBytes = ByteBuffer.allocate((int) (channel.size() - TRAILER_SIZE - indexOffset));
+            readFully(channel, indexBytes, indexOffset);
+            DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBytes.array()));
+
+            int groups = index.readInt();
+            for (int g = 0; g < groups; g++) {
+                IndexEntry entry = new IndexEntry(index.readUTF(), index.readUTF(), index.readLong(),
+                    index.readLong(), index.readLong(), index.readInt());
+
+                if (entry.firstAccount().compareTo(accountId) > 0) {
+                    break; // groups are in account order
+                }
+                if (entry.lastAccount().compareTo(accountId) < 0
+                        || entry.maxCreated() < fromMicros || entry.minCreated() >= toMicros) {
+                    continue;
+                }
+
+                ByteBuffer block = ByteBuffer.allocate(entry.length());
+                readFully(channel, block, entry.offset());
+                decode(block.array(), accountId, fromMicros, toMicros, result);
+            }
+        }
+        return result;
+    }
+
+    private static void decode(byte[] block, String accountId, long fromMicros, long toMicros,
+                               List<StatementEntry> result) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)))) {
+            int rows = in.readInt();
+
+            long[] ids = new long[rows];
+            long previousId = 0;
+            for (int i = 0; i < rows; i++) {
+                previousId += unZigZag(readVarLong(in));
+                ids[i] = previousId;
+            }
+
+            // Row range [first, first + count) belonging to the account
+            int first = -1;
+            int count = 0;
+            int row = 0;
+            int runs = (int) readVarLong(in);
+            for (int r = 0; r < runs; r++) {
+                String account = in.readUTF();
+                int length = (int) readVarLong(in);
+                if (account.equals(accountId)) {
+                    first = row;
+                    count = length;
+                }
+                row += length;
+            }
+
+            String[] types = new String[(int) readVarLong(in)];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = in.readUTF();
+            }
+            int[] typeIndex = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                typeIndex[i] = (int) readVarLong(in);
+            }
+
+            double[] amounts = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                amounts[i] = in.readDouble();
+            }
+
+            long[] created = new long[rows];
+            long previousCreated = 0;
+            for (int i = 0; i < rows; i++) {
+                previousCreated += unZigZag(readVarLong(in));
+                created[i] = previousCreated;
+            }
+
+            for (int i = 0; i < rows; i++) {
+                long time = readVarLong(in);
+                if (i < first || i >= first + count || created[i] < fromMicros || created[i] >= toMicros) {
+                    continue;
+                }
+                String type = types[typeIndex[i]];
+                result.add(new StatementEntry(ids[i], accountId, type.isEmpty() ? null : type, amounts[i],
+                    time == 0 ? null : fromMicros(created[i] + unZigZag(time - 1)),
+                    fromMicros(created[i])));
+            }
+        }
+    }
+
+    /* ================= ENCODING HELPERS ================= */
+
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private record IndexEntry(String firstAccount, String lastAccount, long minCreated, long maxCreated,
+                              long offset, int length) {}
+}
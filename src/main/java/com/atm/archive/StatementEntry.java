@@ -0,0 +1,7 @@
+package com.atm.archive;
+
+import java.time.LocalDateTime;
+
+/** One line of an account statement, read either from the live table or from an archive segment. */
+public record StatementEntry(long id, String accountId, String type, double amount,
+                             LocalDateTime time, LocalDateTime createdAt) {}
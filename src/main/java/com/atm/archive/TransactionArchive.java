@@ -0,0 +1,248 @@
+package com.atm.archive;
+
+import com.atm.db.JpaManager;
+import com.atm.db.TransactionPartitions;
+import com.atm.model.Transaction;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monthly partitions of the transactions table and their cold archive.
+ *
+ * A partition is one calendar month of created_at ({@link TransactionPartitions}). Archiving a
+ * month streams its rows over JDBC into a compressed segment file ({@link SegmentFile}) and
+ * then detaches and drops the month's partition; rows of the month that landed in the default
+ * partition, and every row on a database without native partitions, are deleted instead.
+ * Statement queries read the live table and the segments of the months they cover and merge
+ * the two, so callers do not need to know where a row lives.
+ */
+public class TransactionArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchive.class);
+
+    private static final String DEFAULT_DIRECTORY = "archive";
+    private static final int FETCH_SIZE = 1000;
+
+    // Segments are searched in String.compareTo order of account ids. H2 compares strings that
+    // way; PostgreSQL would use the database locale unless told to compare bytes.
+    private static final String SELECT_PARTITION =
+        "SELECT id, account_id, amount, type, time, created_at FROM transactions "
+            + "WHERE created_at >= ? AND created_at < ? ORDER BY account_id, created_at, id";
+    private static final String SELECT_PARTITION_NATIVE =
+        "SELECT id, account_id, amount, type, time, created_at FROM transactions "
+            + "WHERE created_at >= ? AND created_at < ? ORDER BY account_id COLLATE \"C\", created_at, id";
+
+    private final Path directory;
+
+    public TransactionArchive() {
+        this(Path.of(System.getProperty("atm.archive.dir", DEFAULT_DIRECTORY)));
+    }
+
+    public TransactionArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /* ================= ARCHIVAL ================= */
+
+    /** Archives every month before the given one. Returns the number of rows moved. */
+    public long archiveBefore(YearMonth cutoff) {
+        TransactionPartitions.ensure();
+
+        LocalDateTime oldest;
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            oldest = em.createNamedQuery(Transaction.OLDEST_CREATED, LocalDateTime.class)
+                .getSingleResult();
+        } finally {
+            em.close();
+        }
+        if (oldest == null) {
+            return 0;
+        }
+
+        long archived = 0;
+        for (YearMonth month = YearMonth.from(oldest); month.isBefore(cutoff); month = month.plusMonths(1)) {
+            archived += archivePartition(month);
+        }
+        return archived;
+    }
+
+    /** Moves one month of transactions into a new segment file. Returns the number of rows moved. */
+    public long archivePartition(YearMonth month) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            Path segment = nextSegmentPath(month);
+            temp = segment.resolveSibling(segment.getFileName() + ".tmp");
+
+            long[] written = {0, Long.MIN_VALUE}; // rows, max id
+            boolean[] partitioned = {false};
+            try (SegmentFile.Writer writer = new SegmentFile.Writer(temp)) {
+                em.unwrap(Session.class).doWork(connection -> {
+                    // No new rows can reach the month's partition until it is dropped
+                    partitioned[0] = TransactionPartitions.isNative(connection)
+                        && TransactionPartitions.lockPartition(connection, month);
+                    String sql = TransactionPartitions.isNative(connection)
+                        ? SELECT_PARTITION_NATIVE
+                        : SELECT_PARTITION;
+                    try (PreparedStatement select = connection.prepareStatement(sql)) {
+                        select.setFetchSize(FETCH_SIZE);
+                        select.setTimestamp(1, Timestamp.valueOf(from));
+                        select.setTimestamp(2, Timestamp.valueOf(to));
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) {
+                                Timestamp time = rs.getTimestamp(5);
+                                StatementEntry entry = new StatementEntry(rs.getLong(1), rs.getString(2),
+                                    rs.getString(4), rs.getDouble(3),
+                                    time == null ? null : time.toLocalDateTime(),
+                                    rs.getTimestamp(6).toLocalDateTime());
+                                writer.add(entry);
+                                written[1] = Math.max(written[1], entry.id());
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                written[0] = writer.getRows();
+            }
+
+            if (written[0] == 0) {
+                Files.delete(temp);
+                if (partitioned[0]) {
+                    em.unwrap(Session.class).doWork(connection -> TransactionPartitions.dropPartition(connection, month));
+                }
+                em.getTransaction().commit();
+                return 0;
+            }
+            Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+
+            // Segment is on disk; now drop the rows it holds from the live table
+            if (partitioned[0]) {
+                em.unwrap(Session.class).doWork(connection -> TransactionPartitions.dropPartition(connection, month));
+            }
+            em.createNamedQuery(Transaction.DELETE_ARCHIVED)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setParameter("maxId", written[1])
+                .executeUpdate();
+            em.getTransaction().commit();
+            return written[0];
+        } catch (IOException | RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            deleteQuietly(temp);
+            // Rows are still live; a leftover segment is harmless because reads skip duplicate ids
+            log.warn("Archiving {} failed: {}", month, e.getMessage());
+            return 0;
+        } finally {
+            em.close();
+        }
+    }
+
+    /* ================= STATEMENTS ================= */
+
+    /** Transactions of an account with from <= created_at < to, oldest first. */
+    public List<StatementEntry> statement(String accountId, LocalDateTime from, LocalDateTime to) {
+        Map<Long, StatementEntry> byId = new LinkedHashMap<>();
+
+        for (YearMonth month = YearMonth.from(from); !month.atDay(1).atStartOfDay().isAfter(to);
+                month = month.plusMonths(1)) {
+            for (Path segment : segments(month)) {
+                try {
+                    for (StatementEntry entry : SegmentFile.read(segment, accountId,
+                            SegmentFile.toMicros(from), SegmentFile.toMicros(to))) {
+                        byId.putIfAbsent(entry.id(), entry);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        EntityManager em = JpaManager.getReadEntityManager(accountId);
+        try {
+            List<StatementEntry> live = em.createNamedQuery(Transaction.STATEMENT, StatementEntry.class)
+                .setParameter("id", accountId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+            for (StatementEntry entry : live) {
+                byId.putIfAbsent(entry.id(), entry);
+            }
+        } finally {
+            em.close();
+        }
+
+        List<StatementEntry> result = new ArrayList<>(byId.values());
+        result.sort(Comparator.comparing(StatementEntry::createdAt).thenComparingLong(StatementEntry::id));
+        return result;
+    }
+
+    /* ================= SEGMENT FILES ================= */
+
+    private List<Path> segments(YearMonth month) {
+        List<Path> paths = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return paths;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix(month) + "*.seg")) {
+            stream.forEach(paths::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return paths;
+    }
+
+    // Late rows for an already archived month go into an extra part
+    private Path nextSegmentPath(YearMonth month) {
+        int part = 0;
+        Path path;
+        do {
+            path = directory.resolve(prefix(month) + part++ + ".seg");
+        } while (Files.exists(path));
+        return path;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Left for the next run to overwrite
+        }
+    }
+
+    private static String prefix(YearMonth month) {
+        return "transactions-" + month + ".part";
+    }
+}
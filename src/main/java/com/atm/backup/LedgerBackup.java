@@ -0,0 +1,643 @@
+package com.atm.backup;
+
+import com.atm.db.JpaManager;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the ledger (accounts, ATM state, cassettes, hot-account stripes,
+ * transactions and daily rollups) that bypasses the ORM.
+ *
+ * Export streams rows from JDBC into a direct buffer and writes it to a FileChannel one block
+ * at a time. Restore memory-maps each block, checks its CRC32 and loads the rows in a single
+ * transaction: on PostgreSQL the tables are truncated and every block is re-encoded straight
+ * into a binary COPY stream, so the server parses no SQL and no text; elsewhere (H2 in the
+ * tests) the rows are inserted with JDBC batches. Every block holds rows of one table:
+ *
+ * file  = MAGIC:int VERSION:int block... end-block
+ * block = tag:byte rows:int length:int crc32:int payload[length]
+ * row   = fields in column order; strings are length-prefixed UTF-8 (-1 for null),
+ *         timestamps are epoch microseconds (Long.MIN_VALUE for null), dates are epoch days
+ */
+public class LedgerBackup {
+
+    private static final int MAGIC = 0x41544D42; // "ATMB"
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int BLOCK_HEADER_SIZE = 1 + Integer.BYTES * 3;
+    private static final byte END_TAG = 0;
+
+    private enum Column { STRING, DOUBLE, INT, NULLABLE_INT, LONG, TIMESTAMP, DATE }
+
+    private record Table(byte tag, String name, String[] columns, Column[] types, String identity) {
+
+        String select() {
+            return "SELECT " + String.join(", ", columns) + " FROM " + name + " ORDER BY " + columns[0];
+        }
+
+        String insert() {
+            return "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES ("
+                + "?, ".repeat(columns.length - 1) + "?)";
+        }
+    }
+
+    // Parent tables first, so restore satisfies foreign keys
+    private static final Table[] TABLES = {
+        new Table((byte) 1, "accounts",
+            new String[] {"account_id", "card_number", "pin", "balance", "failedattempts", "credit_stripes"},
+            new Column[] {Column.STRING, Column.STRING, Column.STRING, Column.DOUBLE, Column.INT, Column.NULLABLE_INT},
+            null),
+        new Table((byte) 2, "atm_state",
+            new String[] {"id", "cash", "paper", "ink", "firmware_version"},
+            new Column[] {Column.LONG, Column.DOUBLE, Column.INT, Column.INT, Column.STRING},
+            "id"),
+        new Table((byte) 3, "cassettes",
+            new String[] {"denomination", "note_count"},
+            new Column[] {Column.INT, Column.INT},
+            null),
+        new Table((byte) 4, "balance_deltas",
+            new String[] {"id", "account_id", "stripe", "amount"},
+            new Column[] {Column.STRING, Column.STRING, Column.INT, Column.DOUBLE},
+            null),
+        new Table((byte) 5, "transactions",
+            new String[] {"id", "account_id", "amount", "type", "time", "created_at"},
+            new Column[] {Column.LONG, Column.STRING, Column.DOUBLE, Column.STRING, Column.TIMESTAMP, Column.TIMESTAMP},
+            "id"),
+        new Table((byte) 6, "daily_rollups",
+            new String[] {"id", "terminal_id", "business_date", "stripe", "withdrawn_amount", "withdrawal_count",
+                "deposited_amount", "deposit_count", "transferred_amount", "transfer_count", "receipt_count"},
+            new Column[] {Column.STRING, Column.STRING, Column.DATE, Column.INT, Column.DOUBLE, Column.INT,
+                Column.DOUBLE, Column.INT, Column.DOUBLE, Column.INT, Column.INT},
+            null)
+    };
+
+    /* ================= EXPORT ================= */
+
+    /**
+     * Writes a snapshot to the file. Returns the number of rows written. Every table is read
+     * in one read-only snapshot transaction, so a backup taken under traffic pairs the balances
+     * with exactly the transaction and rollup rows that produced them.
+     */
+    public long export(Path file) {
+        EntityManager em = JpaManager.getReadEntityManager();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer fileHeader = ByteBuffer.allocate(Integer.BYTES * 2).putInt(MAGIC).putInt(VERSION);
+            writeFully(channel, fileHeader.flip());
+
+            BlockWriter writer = new BlockWriter(channel);
+            long[] rows = {0};
+            em.unwrap(Session.class).doWork(connection -> inSnapshot(connection, snapshot -> {
+                for (Table table : TABLES) {
+                    rows[0] += exportTable(snapshot, table, writer);
+                }
+            }));
+            writer.writeEnd();
+            channel.force(true);
+            return rows[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            em.close();
+        }
+    }
+
+    /*
+     * Runs the work in its own read-only transaction on the connection and puts the connection
+     * back as it was, since JPA has no per-transaction isolation and the pool reuses it. Neither
+     * setting can change inside a transaction, hence the explicit commit before resetting.
+     * PostgreSQL's REPEATABLE READ is a snapshot of the whole database; H2's still lets rows
+     * committed meanwhile appear, so H2 reads SERIALIZABLE.
+     */
+    private static void inSnapshot(Connection connection, Work work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int isolation = connection.getTransactionIsolation();
+        boolean readOnly = connection.isReadOnly();
+
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(isPostgreSQL(connection)
+            ? Connection.TRANSACTION_REPEATABLE_READ
+            : Connection.TRANSACTION_SERIALIZABLE);
+        connection.setReadOnly(true);
+        try {
+            work.execute(connection);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setReadOnly(readOnly);
+            connection.setTransactionIsolation(isolation);
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private long exportTable(Connection connection, Table table, BlockWriter writer) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement select = connection.prepareStatement(table.select())) {
+            select.setFetchSize(10_000);
+            try (ResultSet rs = select.executeQuery()) {
+                writer.start(table.tag());
+                while (rs.next()) {
+                    writer.row(rs, table.types());
+                    rows++;
+                }
+                writer.finishBlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private static final class BlockWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE);
+        private final ByteBuffer payload = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        private final CRC32 crc = new CRC32();
+        private byte tag;
+        private int rows;
+
+        BlockWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void start(byte tag) {
+            this.tag = tag;
+        }
+
+        void row(ResultSet rs, Column[] types) throws SQLException, IOException {
+            int rowStart = payload.position();
+            try {
+                encode(rs, types);
+            } catch (BufferOverflowException e) {
+                // Row did not fit: ship the block without it and encode it again
+                payload.position(rowStart);
+                finishBlock();
+                encode(rs, types);
+            }
+            rows++;
+        }
+
+        private void encode(ResultSet rs, Column[] types) throws SQLException {
+            for (int i = 0; i < types.length; i++) {
+                int c = i + 1;
+                switch (types[i]) {
+                    case STRING -> {
+                        String s = rs.getString(c);
+                        if (s == null) {
+                            payload.putInt(-1);
+                        } else {
+                            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                            payload.putInt(bytes.length).put(bytes);
+                        }
+                    }
+                    case DOUBLE -> payload.putDouble(rs.getDouble(c));
+                    case INT -> payload.putInt(rs.getInt(c));
+                    case NULLABLE_INT -> {
+                        int value = rs.getInt(c);
+                        payload.put(rs.wasNull() ? (byte) 0 : (byte) 1).putInt(value);
+                    }
+                    case LONG -> payload.putLong(rs.getLong(c));
+                    case TIMESTAMP -> {
+                        Timestamp ts = rs.getTimestamp(c);
+                        payload.putLong(ts == null ? Long.MIN_VALUE
+                            : Math.floorDiv(ts.getTime(), 1000) * 1_000_000L + ts.getNanos() / 1000);
+                    }
+                    case DATE -> payload.putLong(rs.getDate(c).toLocalDate().toEpochDay());
+                }
+            }
+        }
+
+        void finishBlock() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            payload.flip();
+            crc.reset();
+            crc.update(payload.duplicate());
+
+            header.clear();
+            header.put(tag).putInt(rows).putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+            ByteBuffer[] parts = {header, payload};
+            while (payload.hasRemaining() || header.hasRemaining()) {
+                channel.write(parts);
+            }
+
+            payload.clear();
+            rows = 0;
+        }
+
+        void writeEnd() throws IOException {
+            header.clear();
+            header.put(END_TAG).putInt(0).putInt(0).putInt(0).flip();
+            writeFully(channel, header);
+        }
+    }
+
+    /* ================= RESTORE ================= */
+
+    /**
+     * Replaces the ledger tables with the snapshot in the file. Every block checksum is
+     * verified before anything is deleted; the tables are then cleared and every block is
+     * inserted in one transaction, so a restore that fails part way leaves the ledger as it
+     * was. Returns the rows restored.
+     */
+    public long restore(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            verify(channel);
+
+            EntityManager em = JpaManager.getEntityManager();
+            long[] restored = {0};
+            boolean[] transactionalDdl = {false};
+            try {
+                inTransaction(em, connection -> {
+                    // DDL commits the transaction on H2 but not on PostgreSQL
+                    transactionalDdl[0] = isPostgreSQL(connection);
+                    clear(connection, transactionalDdl[0]);
+
+                    CopyLoader copy = transactionalDdl[0] ? new CopyLoader(connection) : null;
+                    try {
+                        long position = checkFileHeader(channel);
+                        while (true) {
+                            MappedByteBuffer header = map(channel, position, BLOCK_HEADER_SIZE);
+                            byte tag = header.get();
+                            int rows = header.getInt();
+                            int length = header.getInt();
+                            if (tag == END_TAG) {
+                                break;
+                            }
+
+                            Table table = tableFor(tag);
+                            ByteBuffer payload = map(channel, position + BLOCK_HEADER_SIZE, length);
+                            if (copy != null) {
+                                copy.load(table, rows, payload);
+                            } else {
+                                insertBlock(connection, table, rows, payload);
+                            }
+                            restored[0] += rows;
+                            position += BLOCK_HEADER_SIZE + length;
+                        }
+                        if (copy != null) {
+                            copy.finish();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        if (copy != null) {
+                            copy.cancel();
+                        }
+                    }
+
+                    if (transactionalDdl[0]) {
+                        restartIdentities(connection);
+                    }
+                });
+
+                if (!transactionalDdl[0]) {
+                    inTransaction(em, this::restartIdentities);
+                }
+                return restored[0];
+            } finally {
+                em.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Empties the ledger tables in one transaction and restarts their identities, leaving the
+     * schema in place for fresh data.
+     */
+    public void clear() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            inTransaction(em, connection -> clear(connection, isPostgreSQL(connection)));
+            inTransaction(em, this::restartIdentities);
+        } finally {
+            em.close();
+        }
+    }
+
+    // Truncating in the same transaction lets PostgreSQL skip writing the old rows' removal
+    // row by row; H2 would commit on TRUNCATE, so it deletes, children first
+    private void clear(Connection connection, boolean transactionalDdl) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (transactionalDdl) {
+                List<String> names = new ArrayList<>();
+                for (Table table : TABLES) {
+                    names.add(table.name());
+                }
+                statement.executeUpdate("TRUNCATE TABLE " + String.join(", ", names));
+                return;
+            }
+            for (int i = TABLES.length - 1; i >= 0; i--) {
+                statement.executeUpdate("DELETE FROM " + TABLES[i].name());
+            }
+        }
+    }
+
+    private void inTransaction(EntityManager em, Work work) {
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(work);
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        }
+    }
+
+    // Walks every block checking its CRC and that the file ends with the end block
+    private void verify(FileChannel channel) throws IOException {
+        long position = checkFileHeader(channel);
+        CRC32 crc = new CRC32();
+        while (true) {
+            MappedByteBuffer header = map(channel, position, BLOCK_HEADER_SIZE);
+            byte tag = header.get();
+            header.getInt();
+            int length = header.getInt();
+            int expected = header.getInt();
+            if (tag == END_TAG) {
+                return;
+            }
+            crc.reset();
+            crc.update(map(channel, position + BLOCK_HEADER_SIZE, length));
+            if ((int) crc.getValue() != expected) {
+                throw new IllegalStateException("Backup block at offset " + position + " is corrupt");
+            }
+            position += BLOCK_HEADER_SIZE + length;
+        }
+    }
+
+    private void insertBlock(Connection connection, Table table, int rows, ByteBuffer payload)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(table.insert())) {
+            for (int r = 0; r < rows; r++) {
+                decode(payload, table.types(), insert);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void decode(ByteBuffer payload, Column[] types, PreparedStatement insert) throws SQLException {
+        for (int i = 0; i < types.length; i++) {
+            int c = i + 1;
+            switch (types[i]) {
+                case STRING -> {
+                    int length = payload.getInt();
+                    if (length < 0) {
+                        insert.setNull(c, Types.VARCHAR);
+                    } else {
+                        byte[] bytes = new byte[length];
+                        payload.get(bytes);
+                        insert.setString(c, new String(bytes, StandardCharsets.UTF_8));
+                    }
+                }
+                case DOUBLE -> insert.setDouble(c, payload.getDouble());
+                case INT -> insert.setInt(c, payload.getInt());
+                case NULLABLE_INT -> {
+                    boolean present = payload.get() != 0;
+                    int value = payload.getInt();
+                    if (present) {
+                        insert.setInt(c, value);
+                    } else {
+                        insert.setNull(c, Types.INTEGER);
+                    }
+                }
+                case LONG -> insert.setLong(c, payload.getLong());
+                case TIMESTAMP -> {
+                    long micros = payload.getLong();
+                    if (micros == Long.MIN_VALUE) {
+                        insert.setNull(c, Types.TIMESTAMP);
+                    } else {
+                        Timestamp ts = new Timestamp(Math.floorDiv(micros, 1_000_000L) * 1000);
+                        ts.setNanos((int) Math.floorMod(micros, 1_000_000L) * 1000);
+                        insert.setTimestamp(c, ts);
+                    }
+                }
+                case DATE -> insert.setDate(c, Date.valueOf(LocalDate.ofEpochDay(payload.getLong())));
+            }
+        }
+    }
+
+    /*
+     * Feeds blocks to PostgreSQL's COPY ... FROM STDIN (FORMAT binary), one COPY per table.
+     * A row of the file maps field for field onto a binary COPY tuple; only timestamps and
+     * dates count from 2000-01-01 there instead of 1970-01-01.
+     */
+    private static final class CopyLoader {
+
+        private static final byte[] SIGNATURE =
+            {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+        private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+        private static final long PG_EPOCH_DAY = PG_EPOCH.toLocalDate().toEpochDay();
+
+        private final CopyManager copyManager;
+        private final ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        private CopyIn copy;
+        private Table table;
+
+        CopyLoader(Connection connection) throws SQLException {
+            this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        }
+
+        void load(Table table, int rows, ByteBuffer payload) throws SQLException {
+            if (table != this.table) {
+                finish();
+                this.table = table;
+                copy = copyManager.copyIn("COPY " + table.name() + " (" + String.join(", ", table.columns())
+                    + ") FROM STDIN (FORMAT binary)");
+                out.put(SIGNATURE).putInt(0).putInt(0);
+            }
+            Column[] types = table.types();
+            for (int r = 0; r < rows; r++) {
+                room(Short.BYTES);
+                out.putShort((short) types.length);
+                for (Column type : types) {
+                    field(type, payload);
+                }
+            }
+        }
+
+        private void field(Column type, ByteBuffer payload) throws SQLException {
+            room(Integer.BYTES + Long.BYTES);
+            switch (type) {
+                case STRING -> {
+                    int length = payload.getInt();
+                    out.putInt(length);
+                    if (length > 0) {
+                        bytes(payload, length);
+                    }
+                }
+                case DOUBLE -> out.putInt(Double.BYTES).putDouble(payload.getDouble());
+                case INT -> out.putInt(Integer.BYTES).putInt(payload.getInt());
+                case NULLABLE_INT -> {
+                    boolean present = payload.get() != 0;
+                    int value = payload.getInt();
+                    if (present) {
+                        out.putInt(Integer.BYTES).putInt(value);
+                    } else {
+                        out.putInt(-1);
+                    }
+                }
+                case LONG -> out.putInt(Long.BYTES).putLong(payload.getLong());
+                case TIMESTAMP -> {
+                    long micros = payload.getLong();
+                    if (micros == Long.MIN_VALUE) {
+                        out.putInt(-1);
+                    } else {
+                        // Same wall-clock time as the JDBC path would insert, counted from 2000
+                        Timestamp ts = new Timestamp(Math.floorDiv(micros, 1_000_000L) * 1000);
+                        ts.setNanos((int) Math.floorMod(micros, 1_000_000L) * 1000);
+                        out.putInt(Long.BYTES)
+                            .putLong(ChronoUnit.MICROS.between(PG_EPOCH, ts.toLocalDateTime()));
+                    }
+                }
+                case DATE -> out.putInt(Integer.BYTES).putInt((int) (payload.getLong() - PG_EPOCH_DAY));
+            }
+        }
+
+        // Copies string bytes from the mapped block, in pieces when longer than the buffer
+        private void bytes(ByteBuffer payload, int length) throws SQLException {
+            int end = payload.position() + length;
+            while (payload.position() < end) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(out.remaining(), end - payload.position());
+                out.put(payload.slice(payload.position(), n));
+                payload.position(payload.position() + n);
+            }
+        }
+
+        private void room(int bytes) throws SQLException {
+            if (out.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            copy.writeToCopy(out.array(), 0, out.position());
+            out.clear();
+        }
+
+        void finish() throws SQLException {
+            if (copy == null) {
+                return;
+            }
+            room(Short.BYTES);
+            out.putShort((short) -1);
+            flush();
+            copy.endCopy();
+            copy = null;
+            table = null;
+        }
+
+        // Ends a COPY cut short by a failure, so the connection can roll back; no-op after finish()
+        void cancel() {
+            if (copy == null) {
+                return;
+            }
+            try {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            } catch (SQLException e) {
+                // The failure that got us here is the one to report
+            }
+            copy = null;
+        }
+    }
+
+    private void restartIdentities(Connection connection) throws SQLException {
+        for (Table table : TABLES) {
+            if (table.identity() != null) {
+                restartIdentity(connection, table);
+            }
+        }
+    }
+
+    // Restored rows carry their ids, so move the identity past them
+    private void restartIdentity(Connection connection, Table table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT COALESCE(MAX(" + table.identity() + "), 0) FROM " + table.name())) {
+            rs.next();
+            long next = rs.getLong(1) + 1;
+            statement.execute("ALTER TABLE " + table.name() + " ALTER COLUMN " + table.identity()
+                + " RESTART WITH " + next);
+        }
+    }
+
+    /* ================= HELPERS ================= */
+
+    private static boolean isPostgreSQL(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL");
+    }
+
+    private long checkFileHeader(FileChannel channel) throws IOException {
+        MappedByteBuffer header = map(channel, 0, Integer.BYTES * 2);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IllegalStateException("Not a ledger backup file");
+        }
+        return Integer.BYTES * 2;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IllegalStateException("Backup file is truncated");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static Table tableFor(byte tag) {
+        for (Table table : TABLES) {
+            if (table.tag() == tag) {
+                return table;
+            }
+        }
+        throw new IllegalStateException("Unknown block type " + tag);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
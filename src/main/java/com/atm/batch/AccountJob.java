@@ -0,0 +1,47 @@
+package com.atm.batch;
+
+import com.atm.model.Account;
+
+/**
+ * Per-account work for {@link BatchJobRunner}: fees, interest, sweeps and the like.
+ */
+public interface AccountJob {
+
+    /** Type recorded on the Transaction written for each adjustment, e.g. "FEE". */
+    String getTransactionType();
+
+    /**
+     * Balance change for this account; 0 leaves it untouched and writes no Transaction.
+     * The balance includes credits still pending in a hot account's stripes.
+     */
+    double adjustment(Account account, double balance);
+
+    static AccountJob interest(double rate) {
+        return new AccountJob() {
+            @Override
+            public String getTransactionType() {
+                return "INTEREST";
+            }
+
+            @Override
+            public double adjustment(Account account, double balance) {
+                return balance > 0 ? balance * rate : 0;
+            }
+        };
+    }
+
+    static AccountJob fee(double fee) {
+        return new AccountJob() {
+            @Override
+            public String getTransactionType() {
+                return "FEE";
+            }
+
+            @Override
+            public double adjustment(Account account, double balance) {
+                // Never take an account below zero
+                return -Math.min(fee, Math.max(0, balance));
+            }
+        };
+    }
+}
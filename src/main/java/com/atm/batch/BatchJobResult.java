@@ -0,0 +1,34 @@
+package com.atm.batch;
+
+/** Totals for one invocation of {@link BatchJobRunner#run}. */
+public class BatchJobResult {
+
+    private final long processed;
+    private final long adjusted;
+    private final int failedPartitions;
+
+    BatchJobResult(long processed, long adjusted, int failedPartitions) {
+        this.processed = processed;
+        this.adjusted = adjusted;
+        this.failedPartitions = failedPartitions;
+    }
+
+    /** Accounts visited by this invocation (a resumed run does not count earlier work). */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /** Accounts whose balance changed. */
+    public long getAdjusted() {
+        return adjusted;
+    }
+
+    public int getFailedPartitions() {
+        return failedPartitions;
+    }
+
+    /** True when every partition finished; otherwise run again with the same run id to resume. */
+    public boolean isComplete() {
+        return failedPartitions == 0;
+    }
+}
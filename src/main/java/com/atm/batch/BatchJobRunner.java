@@ -0,0 +1,228 @@
+package com.atm.batch;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import com.atm.model.BalanceDelta;
+import com.atm.model.BatchCheckpoint;
+import com.atm.model.Transaction;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs an {@link AccountJob} over every account.
+ *
+ * The accounts table is split into key ranges on account_id and each range is processed by a
+ * worker thread with its own EntityManager. A worker reads its range in chunks, locks the
+ * chunk's rows, applies the adjustments with a Transaction row each, and commits together with
+ * its checkpoint before clearing the persistence context. If a run fails, calling {@link #run}
+ * again with the same run id skips finished partitions and resumes the others after the last
+ * committed chunk. A run id should name one execution, e.g. "interest-2026-10".
+ */
+public class BatchJobRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchJobRunner.class);
+
+    private static final int DEFAULT_PARTITIONS = 8;
+    private static final int DEFAULT_THREADS = 4;
+    private static final int DEFAULT_CHUNK_SIZE = 200;
+
+    private final int partitions;
+    private final int threads;
+    private final int chunkSize;
+
+    public BatchJobRunner() {
+        this(DEFAULT_PARTITIONS, DEFAULT_THREADS, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchJobRunner(int partitions, int threads, int chunkSize) {
+        this.partitions = Math.max(1, partitions);
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public BatchJobResult run(String runId, AccountJob job) {
+        List<BatchCheckpoint> checkpoints = loadOrCreateCheckpoints(runId);
+
+        AtomicLong processed = new AtomicLong();
+        AtomicLong adjusted = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, checkpoints.size()));
+        try {
+            for (BatchCheckpoint checkpoint : checkpoints) {
+                if (!checkpoint.isCompleted()) {
+                    futures.add(pool.submit(() -> runPartition(checkpoint, job, processed, adjusted)));
+                }
+            }
+
+            int failed = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    failed++;
+                    log.warn("Batch partition failed: {}", e.getMessage());
+                }
+            }
+            return new BatchJobResult(processed.get(), adjusted.get(), failed);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* ================= PARTITION WORKER ================= */
+
+    private void runPartition(BatchCheckpoint checkpoint, AccountJob job,
+                              AtomicLong processed, AtomicLong adjusted) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            String lastKey = checkpoint.getLastKey();
+            boolean done = false;
+
+            while (!done) {
+                em.getTransaction().begin();
+                try {
+                    List<Account> chunk = nextChunk(em, lastKey, checkpoint.getUpperBound());
+                    Map<String, Double> pending = pendingCredits(em, chunk);
+                    LocalDateTime now = LocalDateTime.now();
+
+                    for (Account account : chunk) {
+                        double balance = account.getBalance() + pending.getOrDefault(account.getAccountId(), 0.0);
+                        double delta = job.adjustment(account, balance);
+                        if (delta != 0) {
+                            account.setBalance(account.getBalance() + delta);
+
+                            Transaction t = new Transaction();
+                            t.setAccount(account);
+                            t.setAmount(Math.abs(delta));
+                            t.setType(job.getTransactionType());
+                            t.setTime(now);
+                            t.setCreatedAt(now);
+                            em.persist(t);
+                            adjusted.incrementAndGet();
+                        }
+                        lastKey = account.getAccountId();
+                    }
+
+                    done = chunk.size() < chunkSize;
+                    BatchCheckpoint managed = em.find(BatchCheckpoint.class, checkpoint.getId());
+                    managed.setLastKey(lastKey);
+                    managed.setCompleted(done);
+                    managed.setUpdatedAt(now);
+
+                    em.flush();
+                    em.getTransaction().commit();
+                    em.clear();
+
+                    processed.addAndGet(chunk.size());
+                    for (Account account : chunk) {
+                        JpaManager.recordWrite(account.getAccountId());
+                    }
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private List<Account> nextChunk(EntityManager em, String after, String upper) {
+        TypedQuery<Account> q;
+        if (upper == null) {
+            q = em.createNamedQuery(Account.FIND_LAST_CHUNK, Account.class);
+        } else {
+            q = em.createNamedQuery(Account.FIND_CHUNK, Account.class)
+                .setParameter("upper", upper);
+        }
+        // Every account id sorts after the empty string
+        return q.setParameter("after", after == null ? "" : after)
+            .setMaxResults(chunkSize)
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+    }
+
+    // Credits still in hot-account stripes for the chunk's accounts, by account id
+    private static Map<String, Double> pendingCredits(EntityManager em, List<Account> chunk) {
+        Map<String, Double> pending = new HashMap<>();
+        if (chunk.isEmpty()) {
+            return pending;
+        }
+        List<String> ids = new ArrayList<>();
+        for (Account account : chunk) {
+            ids.add(account.getAccountId());
+        }
+        for (Object[] row : em.createNamedQuery(BalanceDelta.PENDING_BY_ACCOUNTS, Object[].class)
+                .setParameter("ids", ids)
+                .getResultList()) {
+            pending.put((String) row[0], (Double) row[1]);
+        }
+        return pending;
+    }
+
+    /* ================= CHECKPOINTS ================= */
+
+    private List<BatchCheckpoint> loadOrCreateCheckpoints(String runId) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            List<BatchCheckpoint> existing = em.createNamedQuery(BatchCheckpoint.FIND_BY_RUN, BatchCheckpoint.class)
+                .setParameter("run", runId)
+                .getResultList();
+            if (!existing.isEmpty()) {
+                return existing;
+            }
+
+            // Split points at evenly spaced offsets of the ordered account ids
+            long count = em.createNamedQuery(Account.COUNT, Long.class).getSingleResult();
+            TreeSet<String> bounds = new TreeSet<>();
+            for (int p = 1; p < partitions && count > 0; p++) {
+                List<String> ids = em.createNamedQuery(Account.FIND_IDS, String.class)
+                    .setFirstResult((int) (p * count / partitions))
+                    .setMaxResults(1)
+                    .getResultList();
+                bounds.addAll(ids);
+            }
+
+            List<BatchCheckpoint> created = new ArrayList<>();
+            String lower = null;
+            int index = 0;
+            for (String bound : bounds) {
+                created.add(new BatchCheckpoint(runId, index++, lower, bound));
+                lower = bound;
+            }
+            created.add(new BatchCheckpoint(runId, index, lower, null));
+
+            em.getTransaction().begin();
+            for (BatchCheckpoint checkpoint : created) {
+                em.persist(checkpoint);
+            }
+            em.getTransaction().commit();
+            return created;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -1,17 +1,60 @@
 package com.atm.core;
 
 import com.atm.db.DataInitializer;
+import com.atm.db.JpaManager;
+import com.atm.db.TransactionPartitions;
 import com.atm.service.ATMService;
 import com.atm.ui.ATMConsoleUI;
+import com.atm.ui.ConsoleInput;
+import com.atm.ui.SessionRecorder;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class ATMApplication {
 
     public static void main(String[] args) {
-        // Initialize test data
-        DataInitializer.initializeTestData();
-        
         ATMService service = new ATMService();
-        ATMConsoleUI ui = new ATMConsoleUI(service);
-        ui.start();
+
+        // Hibernate bootstrap and test data run while the menu is on screen
+        CompletableFuture<Void> ready = startInBackground(service);
+
+        // -Datm.record.dir=<dir> records the session for SessionReplayer
+        String recordDir = System.getProperty("atm.record.dir");
+        if (recordDir == null) {
+            new ATMConsoleUI(service, ready).start();
+        } else {
+            try (SessionRecorder recorder = SessionRecorder.create(Path.of(recordDir), ConsoleInput.console(), System.out)) {
+                new ATMConsoleUI(service, ready, recorder, recorder.output()).start();
+            }
+        }
+        service.shutdown();
+    }
+
+    /**
+     * Builds the persistence units, creates the coming months' transaction partitions and
+     * initializes test data; the returned future completes as soon as that is done. The
+     * hot-account compactor and, unless -Datm.warmup=false, the warm-up of the service's
+     * queries and connections follow on another daemon thread without holding up the menu.
+     */
+    public static CompletableFuture<Void> startInBackground(ATMService service) {
+        Executor startup = task -> {
+            Thread t = new Thread(task, "atm-startup");
+            t.setDaemon(true);
+            t.start();
+        };
+        CompletableFuture<Void> ready = CompletableFuture.runAsync(() -> {
+            JpaManager.bootstrap();
+            TransactionPartitions.ensure();
+            DataInitializer.initializeTestData();
+        }, startup);
+        ready.thenRunAsync(() -> {
+            service.startHotAccountCompactor(5000);
+            if (!"false".equalsIgnoreCase(System.getProperty("atm.warmup"))) {
+                service.warmUp();
+            }
+        }, startup);
+        return ready;
     }
 }
@@ -2,6 +2,7 @@ package com.atm.db;
 
 import com.atm.model.Account;
 import com.atm.model.ATMState;
+import com.atm.model.Cassette;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 
@@ -12,7 +13,7 @@ public class DataInitializer {
         
         try {
             // Check if data already exists
-            TypedQuery<Long> countQuery = em.createQuery("SELECT COUNT(a) FROM Account a", Long.class);
+            TypedQuery<Long> countQuery = em.createNamedQuery(Account.COUNT, Long.class);
             Long count = countQuery.getSingleResult();
             
             if (count > 0) {
@@ -47,12 +48,19 @@ public class DataInitializer {
             em.persist(acc1);
             em.persist(acc2);
             em.persist(atmState);
+
+            // Cassettes making up the 10000 cash
+            em.persist(new Cassette(100, 40));
+            em.persist(new Cassette(50, 60));
+            em.persist(new Cassette(20, 100));
+            em.persist(new Cassette(10, 100));
             
             em.getTransaction().commit();
             System.out.println("\n=== Test data initialized successfully! ===");
             System.out.println("Customer 1 - Card: 1111, PIN: 1111 (Balance: 5000)");
             System.out.println("Customer 2 - Card: 2222, PIN: 2222 (Balance: 3000)");
-            System.out.println("ATM State - Cash: 10000, Paper: 20, Ink: 20, Firmware: v1.0\n");
+            System.out.println("ATM State - Cash: 10000, Paper: 20, Ink: 20, Firmware: v1.0");
+            System.out.println("Cassettes - 40 x $100, 60 x $50, 100 x $20, 100 x $10\n");
             
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
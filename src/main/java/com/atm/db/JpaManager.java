@@ -3,19 +3,126 @@ package com.atm.db;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class JpaManager {
 
     private static final String DEFAULT_PU = "atmPU";
-    private static final EntityManagerFactory emf =
-            Persistence.createEntityManagerFactory(getPersistenceUnitName());
+    private static final long DEFAULT_STALENESS_MS = 5000;
+
+    // One factory per persistence unit name, built the first time it is asked for.
+    private static final Map<String, EntityManagerFactory> factories = new ConcurrentHashMap<>();
+
+    // accountId -> time (ms) of the last write committed on the primary.
+    private static final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    // Earliest time (ms) the next write sweeps expired entries out of recentWrites.
+    private static final AtomicLong nextPrune = new AtomicLong();
+
+    /**
+     * Builds the primary and, if configured, the replica factory now instead of on first use.
+     * Threads asking for an entity manager meanwhile wait for the build already in progress.
+     */
+    public static void bootstrap() {
+        factory(getPersistenceUnitName());
+        String replica = getReplicaUnitName();
+        if (replica != null) {
+            factory(replica);
+        }
+    }
 
     public static EntityManager getEntityManager() {
-        return emf.createEntityManager();
+        return factory(getPersistenceUnitName()).createEntityManager();
+    }
+
+    /**
+     * Entity manager for read-only work that does not depend on a customer's own writes.
+     * Goes to the replica unit when one is configured, otherwise to the primary.
+     */
+    public static EntityManager getReadEntityManager() {
+        String replica = getReplicaUnitName();
+        return replica == null ? getEntityManager() : factory(replica).createEntityManager();
+    }
+
+    /**
+     * Entity manager for a read of one account. Stays on the primary while the account
+     * has a write younger than the staleness window, so customers always see their own changes.
+     */
+    public static EntityManager getReadEntityManager(String accountId) {
+        if (accountId != null && isRecentlyWritten(accountId)) {
+            return getEntityManager();
+        }
+        return getReadEntityManager();
+    }
+
+    /**
+     * Call after committing a change to an account on the primary. Nothing is kept without a
+     * replica; otherwise entries older than the staleness window are swept at most once per window,
+     * so a batch job touching every account does not leave the whole table in memory.
+     */
+    public static void recordWrite(String accountId) {
+        if (accountId == null || getReplicaUnitName() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        recentWrites.put(accountId, now);
+
+        long pruneAt = nextPrune.get();
+        if (now >= pruneAt && nextPrune.compareAndSet(pruneAt, now + getStalenessMillis())) {
+            long expired = now - getStalenessMillis();
+            recentWrites.values().removeIf(writtenAt -> writtenAt <= expired);
+        }
+    }
+
+    private static boolean isRecentlyWritten(String accountId) {
+        Long writtenAt = recentWrites.get(accountId);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt < getStalenessMillis()) {
+            return true;
+        }
+        recentWrites.remove(accountId, writtenAt);
+        return false;
+    }
+
+    /**
+     * Hibernate statistics of the primary unit (query plan cache, statement prepares, ...).
+     * Only collected when started with -Datm.statistics=true.
+     */
+    public static Statistics getStatistics() {
+        return factory(getPersistenceUnitName()).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static EntityManagerFactory factory(String unitName) {
+        return factories.computeIfAbsent(unitName, name -> Persistence.createEntityManagerFactory(name,
+            Map.of("hibernate.generate_statistics", String.valueOf(Boolean.getBoolean("atm.statistics")))));
     }
 
     private static String getPersistenceUnitName() {
         String fromProperty = System.getProperty("atm.persistence.unit");
         return (fromProperty == null || fromProperty.isBlank()) ? DEFAULT_PU : fromProperty.trim();
     }
+
+    private static String getReplicaUnitName() {
+        String fromProperty = System.getProperty("atm.persistence.unit.read");
+        return (fromProperty == null || fromProperty.isBlank()) ? null : fromProperty.trim();
+    }
+
+    private static long getStalenessMillis() {
+        String fromProperty = System.getProperty("atm.replica.staleness.ms");
+        if (fromProperty == null || fromProperty.isBlank()) {
+            return DEFAULT_STALENESS_MS;
+        }
+        try {
+            return Long.parseLong(fromProperty.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_STALENESS_MS;
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package com.atm.db;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monthly range partitions of the transactions table.
+ *
+ * On PostgreSQL the table is declared PARTITION BY RANGE (created_at) with one partition per
+ * calendar month plus a default partition for rows outside them. An insert only maintains the
+ * primary key and the (account_id, created_at) statement index of the current month's
+ * partition, and an old month leaves the live table by detaching its partition rather than by
+ * deleting rows. hbm2ddl is kept off this table
+ * ({@link PartitionedSchemaFilter}); {@link #ensure()} creates it, migrates a plain table left
+ * by an older version, and adds partitions for the coming months. It is run at startup and
+ * by every archive run, so it must be run at least every {@value #MONTHS_AHEAD} months.
+ *
+ * Other databases (H2 in the tests) keep the plain table Hibernate creates and treat a month
+ * as a created_at range.
+ */
+public final class TransactionPartitions {
+
+    static final String TABLE = "transactions";
+
+    private static final int MONTHS_AHEAD = 2;
+
+    private static final String CREATE_TABLE =
+        "CREATE TABLE transactions ("
+            + "id BIGINT GENERATED BY DEFAULT AS IDENTITY, "
+            + "account_id VARCHAR(255) NOT NULL REFERENCES accounts (account_id), "
+            + "amount FLOAT(53) NOT NULL, "
+            + "type VARCHAR(255), "
+            + "time TIMESTAMP(6), "
+            + "created_at TIMESTAMP(6) NOT NULL, "
+            + "PRIMARY KEY (id, created_at)"
+            + ") PARTITION BY RANGE (created_at)";
+    private static final String CREATE_DEFAULT =
+        "CREATE TABLE transactions_default PARTITION OF transactions DEFAULT";
+    // Declared on the parent, so PostgreSQL creates it on every partition, present and future
+    private static final String CREATE_STATEMENT_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_transactions_account_created ON transactions (account_id, created_at)";
+
+    private TransactionPartitions() {}
+
+    /** Creates or migrates the partitioned table and the partitions up to a few months ahead. */
+    public static void ensure() {
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(connection -> {
+                if (!isNative(connection)) {
+                    return;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    String kind = tableKind(statement);
+                    if (kind == null) {
+                        statement.execute(CREATE_TABLE);
+                        statement.execute(CREATE_DEFAULT);
+                    } else if (kind.equals("r")) {
+                        migrate(statement);
+                    }
+                    statement.execute(CREATE_STATEMENT_INDEX);
+                    YearMonth now = YearMonth.now();
+                    for (int i = 0; i <= MONTHS_AHEAD; i++) {
+                        createPartition(statement, now.plusMonths(i));
+                    }
+                }
+            });
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Whether the connection's database partitions the table natively. */
+    public static boolean isNative(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL");
+    }
+
+    public static String partitionName(YearMonth month) {
+        return String.format("%s_%04d_%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Locks a month's partition against writes for the rest of the transaction, so every row
+     * it holds is seen by a following read. Returns false when the month has no partition.
+     */
+    public static boolean lockPartition(Connection connection, YearMonth month) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!partitionExists(statement, month)) {
+                return false;
+            }
+            statement.execute("LOCK TABLE " + partitionName(month) + " IN EXCLUSIVE MODE");
+            return true;
+        }
+    }
+
+    /** Detaches and drops a month's partition inside the caller's transaction. */
+    public static void dropPartition(Connection connection, YearMonth month) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partitionName(month));
+            statement.execute("DROP TABLE " + partitionName(month));
+        }
+    }
+
+    /* ================= DDL ================= */
+
+    private static void createPartition(Statement statement, YearMonth month) throws SQLException {
+        statement.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+            + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    // Moves the rows of a plain table left by hbm2ddl into a partitioned one
+    private static void migrate(Statement statement) throws SQLException {
+        statement.execute("ALTER TABLE " + TABLE + " RENAME TO transactions_unpartitioned");
+        statement.execute(CREATE_TABLE);
+        statement.execute(CREATE_DEFAULT);
+
+        List<YearMonth> months = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT DISTINCT EXTRACT(YEAR FROM created_at), EXTRACT(MONTH FROM created_at) "
+                    + "FROM transactions_unpartitioned")) {
+            while (rs.next()) {
+                months.add(YearMonth.of(rs.getInt(1), rs.getInt(2)));
+            }
+        }
+        for (YearMonth month : months) {
+            createPartition(statement, month);
+        }
+
+        statement.execute("INSERT INTO transactions (id, account_id, amount, type, time, created_at) "
+            + "SELECT id, account_id, amount, type, time, created_at FROM transactions_unpartitioned");
+        long next;
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM transactions")) {
+            rs.next();
+            next = rs.getLong(1);
+        }
+        statement.execute("ALTER TABLE transactions ALTER COLUMN id RESTART WITH " + next);
+        statement.execute("DROP TABLE transactions_unpartitioned");
+    }
+
+    // "p" for a partitioned table, "r" for a plain one, null when missing
+    private static String tableKind(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT relkind FROM pg_class WHERE relname = '" + TABLE + "' AND pg_table_is_visible(oid)")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private static boolean partitionExists(Statement statement, YearMonth month) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT 1 FROM pg_class WHERE relname = '" + partitionName(month) + "' AND pg_table_is_visible(oid)")) {
+            return rs.next();
+        }
+    }
+}
@@ -4,8 +4,13 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "atm_state")
+@NamedQuery(name = ATMState.CURRENT, query = "SELECT a FROM ATMState a")
 public class ATMState {
 
+    // ===== NAMED QUERIES =====
+
+    public static final String CURRENT = "ATMState.current";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
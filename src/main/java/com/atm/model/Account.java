@@ -4,8 +4,33 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "accounts")
+@NamedQuery(name = Account.FIND_BY_CARD_AND_PIN,
+    query = "SELECT a FROM Account a WHERE a.cardNumber = :card AND a.pin = :pin")
+@NamedQuery(name = Account.FIND_TRANSFER_TARGET,
+    query = "SELECT a.accountId, a.creditStripes FROM Account a WHERE a.cardNumber = :card")
+@NamedQuery(name = Account.COUNT, query = "SELECT COUNT(a) FROM Account a")
+@NamedQuery(name = Account.LOCK_BY_IDS,
+    query = "SELECT a FROM Account a WHERE a.accountId IN :ids ORDER BY a.accountId",
+    lockMode = LockModeType.PESSIMISTIC_WRITE)
+@NamedQuery(name = Account.FIND_IDS, query = "SELECT a.accountId FROM Account a ORDER BY a.accountId")
+@NamedQuery(name = Account.FIND_CHUNK, query = "SELECT a FROM Account a "
+    + "WHERE a.accountId > :after AND a.accountId <= :upper ORDER BY a.accountId")
+@NamedQuery(name = Account.FIND_LAST_CHUNK,
+    query = "SELECT a FROM Account a WHERE a.accountId > :after ORDER BY a.accountId")
+@NamedQuery(name = Account.FIND_PIN_BY_CARD, query = "SELECT a.pin FROM Account a WHERE a.cardNumber = :card")
 public class Account {
 
+    // ===== NAMED QUERIES =====
+
+    public static final String FIND_BY_CARD_AND_PIN = "Account.findByCardAndPin";
+    public static final String FIND_TRANSFER_TARGET = "Account.findTransferTarget";
+    public static final String COUNT = "Account.count";
+    public static final String LOCK_BY_IDS = "Account.lockByIds";
+    public static final String FIND_IDS = "Account.findIds";
+    public static final String FIND_CHUNK = "Account.findChunk";
+    public static final String FIND_LAST_CHUNK = "Account.findLastChunk";
+    public static final String FIND_PIN_BY_CARD = "Account.findPinByCard";
+
     @Id
     @Column(name = "account_id")
     private String accountId;
@@ -22,6 +47,10 @@ public class Account {
     @Column(name = "failedattempts")
     private int failedAttempts;
 
+    // Number of credit stripes for a hot account; null or 0 for a normal account
+    @Column(name = "credit_stripes")
+    private Integer creditStripes;
+
     // ===== GETTERS & SETTERS =====
 
     public String getAccountId() {
@@ -63,4 +92,16 @@ public class Account {
     public void setFailedAttempts(int failedAttempts) {
         this.failedAttempts = failedAttempts;
     }
+
+    public int getCreditStripes() {
+        return creditStripes == null ? 0 : creditStripes;
+    }
+
+    public void setCreditStripes(int creditStripes) {
+        this.creditStripes = creditStripes;
+    }
+
+    public boolean isHot() {
+        return getCreditStripes() > 0;
+    }
 }
@@ -0,0 +1,73 @@
+package com.atm.model;
+
+import jakarta.persistence.*;
+
+/**
+ * One stripe of pending credits for a hot account. The account's real balance is
+ * accounts.balance plus the sum of its stripes until the compactor folds them in.
+ */
+@Entity
+@Table(name = "balance_deltas")
+@NamedQuery(name = BalanceDelta.PENDING_SUM,
+    query = "SELECT COALESCE(SUM(d.amount), 0) FROM BalanceDelta d WHERE d.accountId = :id")
+@NamedQuery(name = BalanceDelta.FIND_BY_ACCOUNT, query = "SELECT d FROM BalanceDelta d WHERE d.accountId = :id")
+@NamedQuery(name = BalanceDelta.PENDING_BY_ACCOUNTS, query = "SELECT d.accountId, SUM(d.amount) FROM BalanceDelta d "
+    + "WHERE d.accountId IN :ids GROUP BY d.accountId")
+@NamedQuery(name = BalanceDelta.FIND_PENDING_ACCOUNTS,
+    query = "SELECT DISTINCT d.accountId FROM BalanceDelta d WHERE d.amount <> 0")
+public class BalanceDelta {
+
+    // ===== NAMED QUERIES =====
+
+    public static final String PENDING_SUM = "BalanceDelta.pendingSum";
+    public static final String FIND_BY_ACCOUNT = "BalanceDelta.findByAccount";
+    public static final String PENDING_BY_ACCOUNTS = "BalanceDelta.pendingByAccounts";
+    public static final String FIND_PENDING_ACCOUNTS = "BalanceDelta.findPendingAccounts";
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    @Column(name = "account_id", nullable = false)
+    private String accountId;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    @Column(name = "amount")
+    private double amount;
+
+    public BalanceDelta() {}
+
+    public BalanceDelta(String accountId, int stripe) {
+        this.id = idFor(accountId, stripe);
+        this.accountId = accountId;
+        this.stripe = stripe;
+    }
+
+    public static String idFor(String accountId, int stripe) {
+        return accountId + "#" + stripe;
+    }
+
+    // ===== GETTERS & SETTERS =====
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+}
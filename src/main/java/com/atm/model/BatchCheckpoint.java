@@ -0,0 +1,102 @@
+package com.atm.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one key-range partition of a batch job run. Account ids in
+ * (lowerBound, upperBound] belong to the partition; null bounds are open.
+ */
+@Entity
+@Table(name = "batch_checkpoints")
+@NamedQuery(name = BatchCheckpoint.FIND_BY_RUN,
+    query = "SELECT c FROM BatchCheckpoint c WHERE c.runId = :run ORDER BY c.partitionIndex")
+public class BatchCheckpoint {
+
+    // ===== NAMED QUERIES =====
+
+    public static final String FIND_BY_RUN = "BatchCheckpoint.findByRun";
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Column(name = "partition_index", nullable = false)
+    private int partitionIndex;
+
+    @Column(name = "lower_bound")
+    private String lowerBound;
+
+    @Column(name = "upper_bound")
+    private String upperBound;
+
+    @Column(name = "last_key")
+    private String lastKey;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public BatchCheckpoint() {}
+
+    public BatchCheckpoint(String runId, int partitionIndex, String lowerBound, String upperBound) {
+        this.id = runId + ":" + partitionIndex;
+        this.runId = runId;
+        this.partitionIndex = partitionIndex;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.lastKey = lowerBound;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // ===== GETTERS & SETTERS =====
+
+    public String getId() {
+        return id;
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    public int getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public String getLowerBound() {
+        return lowerBound;
+    }
+
+    public String getUpperBound() {
+        return upperBound;
+    }
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(String lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,56 @@
+package com.atm.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "cassettes")
+@NamedQuery(name = Cassette.FIND_ALL, query = "SELECT c FROM Cassette c ORDER BY c.denomination DESC")
+public class Cassette {
+
+    // ===== NAMED QUERIES =====
+
+    // Largest denomination first
+    public static final String FIND_ALL = "Cassette.findAll";
+
+    @Id
+    @Column(name = "denomination")
+    private int denomination;
+
+    @Column(name = "note_count")
+    private int count;
+
+    public Cassette() {}
+
+    public Cassette(int denomination, int count) {
+        this.denomination = denomination;
+        this.count = count;
+    }
+
+    // ===== GETTERS & SETTERS =====
+
+    public int getDenomination() {
+        return denomination;
+    }
+
+    public void setDenomination(int denomination) {
+        this.denomination = denomination;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    // ===== OPERATIONS =====
+
+    public double getValue() {
+        return (double) denomination * count;
+    }
+
+    public void dispense(int notes) {
+        this.count -= notes;
+    }
+}
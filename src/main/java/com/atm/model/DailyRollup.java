@@ -0,0 +1,115 @@
+package com.atm.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/**
+ * One stripe of a terminal's totals for one day. The day's totals are the sum of its stripes;
+ * operations add to a random stripe so concurrent sessions rarely wait on the same row.
+ */
+@Entity
+@Table(name = "daily_rollups", indexes = {
+    @Index(name = "idx_daily_rollups_terminal_day", columnList = "terminal_id, business_date")
+})
+@NamedQuery(name = DailyRollup.FIND_BY_TERMINAL_AND_DAY,
+    query = "SELECT r FROM DailyRollup r WHERE r.terminalId = :terminal AND r.businessDate = :day")
+public class DailyRollup {
+
+    // ===== NAMED QUERIES =====
+
+    public static final String FIND_BY_TERMINAL_AND_DAY = "DailyRollup.findByTerminalAndDay";
+
+    @Id
+    @Column(name = "id")
+    private String id;
+
+    @Column(name = "terminal_id", nullable = false)
+    private String terminalId;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    @Column(name = "withdrawn_amount")
+    private double withdrawnAmount;
+
+    @Column(name = "withdrawal_count")
+    private int withdrawalCount;
+
+    @Column(name = "deposited_amount")
+    private double depositedAmount;
+
+    @Column(name = "deposit_count")
+    private int depositCount;
+
+    @Column(name = "transferred_amount")
+    private double transferredAmount;
+
+    @Column(name = "transfer_count")
+    private int transferCount;
+
+    @Column(name = "receipt_count")
+    private int receiptCount;
+
+    public DailyRollup() {}
+
+    public DailyRollup(String terminalId, LocalDate businessDate, int stripe) {
+        this.id = idFor(terminalId, businessDate, stripe);
+        this.terminalId = terminalId;
+        this.businessDate = businessDate;
+        this.stripe = stripe;
+    }
+
+    public static String idFor(String terminalId, LocalDate businessDate, int stripe) {
+        return terminalId + "#" + businessDate + "#" + stripe;
+    }
+
+    // ===== GETTERS & SETTERS =====
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    public LocalDate getBusinessDate() {
+        return businessDate;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public double getWithdrawnAmount() {
+        return withdrawnAmount;
+    }
+
+    public int getWithdrawalCount() {
+        return withdrawalCount;
+    }
+
+    public double getDepositedAmount() {
+        return depositedAmount;
+    }
+
+    public int getDepositCount() {
+        return depositCount;
+    }
+
+    public double getTransferredAmount() {
+        return transferredAmount;
+    }
+
+    public int getTransferCount() {
+        return transferCount;
+    }
+
+    public int getReceiptCount() {
+        return receiptCount;
+    }
+}
@@ -1,12 +1,33 @@
 package com.atm.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.PartitionKey;
+
 import java.time.LocalDateTime;
 
+// Range-partitioned by month of created_at on PostgreSQL, see TransactionPartitions
 @Entity
-@Table(name = "transactions")
+@Table(
+    name = "transactions",
+    indexes = {
+        // Statements by account and time; on PostgreSQL TransactionPartitions creates it per partition
+        @Index(name = "idx_transactions_account_created", columnList = "account_id, created_at")
+    }
+)
+@NamedQuery(name = Transaction.OLDEST_CREATED, query = "SELECT MIN(t.createdAt) FROM Transaction t")
+@NamedQuery(name = Transaction.DELETE_ARCHIVED, query = "DELETE FROM Transaction t "
+    + "WHERE t.createdAt >= :from AND t.createdAt < :to AND t.id <= :maxId")
+@NamedQuery(name = Transaction.STATEMENT, query = "SELECT new com.atm.archive.StatementEntry(t.id, "
+    + "t.account.accountId, t.type, t.amount, t.time, t.createdAt) FROM Transaction t "
+    + "WHERE t.account.accountId = :id AND t.createdAt >= :from AND t.createdAt < :to")
 public class Transaction {
 
+    // ===== NAMED QUERIES =====
+
+    public static final String OLDEST_CREATED = "Transaction.oldestCreated";
+    public static final String DELETE_ARCHIVED = "Transaction.deleteArchived";
+    public static final String STATEMENT = "Transaction.statement";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -21,6 +42,7 @@ public class Transaction {
 
     private LocalDateTime time;
 
+    @PartitionKey
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
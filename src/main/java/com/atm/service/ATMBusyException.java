@@ -0,0 +1,9 @@
+package com.atm.service;
+
+/** Thrown when the admission controller sheds a request; the caller should retry shortly. */
+public class ATMBusyException extends RuntimeException {
+
+    public ATMBusyException(String message) {
+        super(message);
+    }
+}
@@ -1,43 +1,91 @@
 package com.atm.service;
 
+import com.atm.archive.TransactionArchive;
 import com.atm.db.JpaManager;
 import com.atm.model.Account;
 import com.atm.model.ATMState;
+import com.atm.model.Cassette;
 import com.atm.model.Transaction;
+import com.atm.service.AdmissionController.Priority;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Customer and technician operations. Methods report what happened through {@link Outcome}
+ * codes and value objects rather than printing; failures are also logged as diagnostics.
+ */
 public class ATMService {
 
-    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Logger log = LoggerFactory.getLogger(ATMService.class);
+
+    private static final DispensePlanner dispensePlanner =
+        new DispensePlanner(DispensePlanner.STANDARD_DENOMINATIONS, DispensePlanner.DEFAULT_TABLE_LIMIT);
+    private static final int[] denominations = dispensePlanner.getDenominations();
+
+    private static final int WARM_UP_CONNECTIONS = 4;
+
+    private final ReceiptPrinter receiptPrinter;
+    private final HotAccountLedger hotAccounts = new HotAccountLedger();
+    private final RollupLedger rollups = new RollupLedger();
+    private final TransactionArchive archive = new TransactionArchive();
+    private final AdmissionController admission = new AdmissionController();
+
+    public ATMService() {
+        this(new ReceiptPrinter(ReceiptOutput.console()));
+    }
+
+    public ATMService(ReceiptPrinter receiptPrinter) {
+        this.receiptPrinter = receiptPrinter;
+    }
 
     /* ================= LOGIN ================= */
 
-    public Account login(String cardNumber, String pin) {
+    public LoginResult login(String cardNumber, String pin) {
+        return admitted(Priority.NORMAL, LoginResult.BUSY, () -> doLogin(cardNumber, pin));
+    }
+
+    private LoginResult doLogin(String cardNumber, String pin) {
         EntityManager em = JpaManager.getEntityManager();
         try {
-            TypedQuery<Account> q = em.createQuery(
-                "SELECT a FROM Account a WHERE a.cardNumber = :card AND a.pin = :pin",
-                Account.class
-            );
+            TypedQuery<Account> q = em.createNamedQuery(Account.FIND_BY_CARD_AND_PIN, Account.class);
             q.setParameter("card", cardNumber);
             q.setParameter("pin", pin);
 
             Account account = q.getSingleResult();
-            account.setFailedAttempts(0); // Reset failed attempts on successful login
-            
-            em.getTransaction().begin();
-            em.merge(account);
-            em.getTransaction().commit();
+            if (account.getFailedAttempts() != 0) {
+                // Reset failed attempts on successful login; re-read under lock so the
+                // full-row update cannot overwrite a concurrent balance change
+                em.getTransaction().begin();
+                em.refresh(account, LockModeType.PESSIMISTIC_WRITE);
+                account.setFailedAttempts(0);
+                em.getTransaction().commit();
+                JpaManager.recordWrite(account.getAccountId());
+            }
+
+            em.detach(account);
+            account.setBalance(hotAccounts.balanceOf(em, account));
             
-            return account;
+            return LoginResult.success(account);
         } catch (NoResultException e) {
-            return null;
+            return LoginResult.INVALID_CREDENTIALS;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            log.warn("Login failed: {}", e.getMessage());
+            return LoginResult.FAILED;
         } finally {
             em.close();
         }
@@ -45,10 +93,25 @@ public class ATMService {
 
     /* ================= ACCOUNT OPERATIONS ================= */
 
-    public Account getAccountDetails(String accountId) {
-        EntityManager em = JpaManager.getEntityManager();
+    public AccountResult getAccountDetails(String accountId) {
+        return admitted(Priority.HIGH, AccountResult.BUSY, () -> doGetAccountDetails(accountId));
+    }
+
+    private AccountResult doGetAccountDetails(String accountId) {
+        EntityManager em = JpaManager.getReadEntityManager(accountId);
         try {
-            return em.find(Account.class, accountId);
+            Account account = em.find(Account.class, accountId);
+            if (account == null) {
+                return AccountResult.NOT_FOUND;
+            }
+            if (account.isHot()) {
+                em.detach(account);
+                account.setBalance(hotAccounts.balanceOf(em, account));
+            }
+            return AccountResult.success(account);
+        } catch (Exception e) {
+            log.warn("Reading account {} failed: {}", accountId, e.getMessage());
+            return AccountResult.FAILED;
         } finally {
             em.close();
         }
@@ -58,20 +121,42 @@ public class ATMService {
         return account.getBalance();
     }
 
+    /** Transactions with from <= created_at < to, from the live table and the archive. */
+    public StatementResult getStatement(String accountId, LocalDateTime from, LocalDateTime to) {
+        return admitted(Priority.NORMAL, StatementResult.BUSY, () -> doGetStatement(accountId, from, to));
+    }
+
+    private StatementResult doGetStatement(String accountId, LocalDateTime from, LocalDateTime to) {
+        try {
+            return new StatementResult(Outcome.SUCCESS, archive.statement(accountId, from, to));
+        } catch (Exception e) {
+            log.warn("Statement failed for account {}: {}", accountId, e.getMessage());
+            return StatementResult.FAILED;
+        }
+    }
+
+    /** Moves every month of transactions before the cutoff into archive segment files. */
+    public long archiveTransactionsBefore(YearMonth cutoff) {
+        return archive.archiveBefore(cutoff);
+    }
+
     /* ================= DEPOSIT ================= */
 
-    public boolean deposit(Account account, double amount) {
+    public Outcome deposit(Account account, double amount) {
+        return admitted(Priority.NORMAL, Outcome.BUSY, () -> doDeposit(account, amount));
+    }
+
+    private Outcome doDeposit(Account account, double amount) {
         if (amount <= 0) {
-            System.out.println("Invalid amount. Please enter a positive number.");
-            return false;
+            return Outcome.INVALID_AMOUNT;
         }
 
         EntityManager em = JpaManager.getEntityManager();
         em.getTransaction().begin();
 
         try {
-            Account managed = em.find(Account.class, account.getAccountId());
-            ATMState atmState = getATMState(em);
+            Account managed = em.find(Account.class, account.getAccountId(), LockModeType.PESSIMISTIC_WRITE);
+            ATMState atmState = lockATMState(em);
 
             managed.setBalance(managed.getBalance() + amount);
             atmState.addCash(amount);
@@ -85,15 +170,16 @@ public class ATMService {
 
             em.persist(t);
             em.merge(atmState);
+            rollups.record(em, RollupLedger.Metric.DEPOSIT, amount, 1);
             em.getTransaction().commit();
+            JpaManager.recordWrite(managed.getAccountId());
 
-            System.out.println("Deposit successful.");
-            account.setBalance(managed.getBalance());
-            return true;
+            account.setBalance(hotAccounts.balanceOf(em, managed));
+            return Outcome.SUCCESS;
         } catch (Exception e) {
             em.getTransaction().rollback();
-            System.out.println("Deposit failed: " + e.getMessage());
-            return false;
+            log.warn("Deposit failed for account {}: {}", account.getAccountId(), e.getMessage());
+            return Outcome.FAILED;
         } finally {
             em.close();
         }
@@ -101,47 +187,63 @@ public class ATMService {
 
     /* ================= WITHDRAW ================= */
 
-    public boolean withdraw(Account account, double amount) {
+    public Outcome withdraw(Account account, double amount) {
+        return admitted(Priority.NORMAL, Outcome.BUSY, () -> doWithdraw(account, amount));
+    }
+
+    private Outcome doWithdraw(Account account, double amount) {
         if (amount <= 0) {
-            System.out.println("Invalid amount. Please enter a positive number.");
-            return false;
+            return Outcome.INVALID_AMOUNT;
         }
 
         EntityManager em = JpaManager.getEntityManager();
         em.getTransaction().begin();
 
         try {
-            Account managed = em.find(Account.class, account.getAccountId());
-            ATMState atmState = getATMState(em);
+            Account managed = em.find(Account.class, account.getAccountId(), LockModeType.PESSIMISTIC_WRITE);
+            ATMState atmState = lockATMState(em);
 
             // Validate
-            if (managed.getBalance() < amount) {
-                System.out.println("Insufficient balance.");
+            if (hotAccounts.balanceOf(em, managed) < amount) {
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.INSUFFICIENT_BALANCE;
             }
 
             if (atmState.getCash() < amount) {
-                System.out.println("ATM has insufficient cash.");
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.ATM_INSUFFICIENT_CASH;
             }
 
-            if (atmState.getPaper() < 1) {
-                System.out.println("ATM is out of paper.");
+            // Receipts still queued at the printer have not been deducted yet
+            int pendingSupplies = receiptPrinter.getPendingSupplies();
+
+            if (atmState.getPaper() - pendingSupplies < 1) {
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.OUT_OF_PAPER;
             }
 
-            if (atmState.getInk() < 1) {
-                System.out.println("ATM is out of ink.");
+            if (atmState.getInk() - pendingSupplies < 1) {
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.OUT_OF_INK;
+            }
+
+            // Pick notes; an ATM without cassette records only has the cash total to go on
+            List<Cassette> cassettes = getCassettes(em);
+            int[] notes = null;
+            if (!cassettes.isEmpty()) {
+                notes = dispensePlanner.plan(amount, noteCounts(cassettes));
+                if (notes == null) {
+                    em.getTransaction().rollback();
+                    return Outcome.CANNOT_DISPENSE;
+                }
             }
 
             // Process withdrawal
             managed.setBalance(managed.getBalance() - amount);
             atmState.setCash(atmState.getCash() - amount);
+            if (notes != null) {
+                dispense(cassettes, notes);
+            }
 
             Transaction t = new Transaction();
             t.setAccount(managed);
@@ -152,15 +254,16 @@ public class ATMService {
 
             em.persist(t);
             em.merge(atmState);
+            rollups.record(em, RollupLedger.Metric.WITHDRAWAL, amount, 1);
             em.getTransaction().commit();
+            JpaManager.recordWrite(managed.getAccountId());
 
-            System.out.println("Withdrawal successful.");
-            account.setBalance(managed.getBalance());
-            return true;
+            account.setBalance(hotAccounts.balanceOf(em, managed));
+            return Outcome.SUCCESS;
         } catch (Exception e) {
             em.getTransaction().rollback();
-            System.out.println("Withdrawal failed: " + e.getMessage());
-            return false;
+            log.warn("Withdrawal failed for account {}: {}", account.getAccountId(), e.getMessage());
+            return Outcome.FAILED;
         } finally {
             em.close();
         }
@@ -168,42 +271,62 @@ public class ATMService {
 
     /* ================= TRANSFER ================= */
 
-    public boolean transfer(Account from, String toCardNumber, double amount) {
+    public Outcome transfer(Account from, String toCardNumber, double amount) {
+        return admitted(Priority.LOW, Outcome.BUSY, () -> doTransfer(from, toCardNumber, amount));
+    }
+
+    private Outcome doTransfer(Account from, String toCardNumber, double amount) {
         if (amount <= 0) {
-            System.out.println("Invalid amount. Please enter a positive number.");
-            return false;
+            return Outcome.INVALID_AMOUNT;
         }
 
         EntityManager em = JpaManager.getEntityManager();
         em.getTransaction().begin();
 
         try {
-            Account sender = em.find(Account.class, from.getAccountId());
-
-            TypedQuery<Account> q = em.createQuery(
-                "SELECT a FROM Account a WHERE a.cardNumber = :card",
-                Account.class
-            );
+            TypedQuery<Object[]> q = em.createNamedQuery(Account.FIND_TRANSFER_TARGET, Object[].class);
             q.setParameter("card", toCardNumber);
 
-            Account receiver;
+            Object[] target;
             try {
-                receiver = q.getSingleResult();
+                target = q.getSingleResult();
             } catch (NoResultException e) {
-                System.out.println("Target account not found.");
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.ACCOUNT_NOT_FOUND;
             }
+            String receiverId = (String) target[0];
+            Integer receiverStripes = (Integer) target[1];
+            boolean lockReceiver = receiverStripes == null || receiverStripes == 0;
 
-            if (sender.getBalance() < amount) {
-                System.out.println("Insufficient balance.");
+            // Lock rows in account id order so two opposite transfers cannot deadlock
+            Account sender;
+            Account receiver;
+            if (lockReceiver && receiverId.compareTo(from.getAccountId()) < 0) {
+                receiver = em.find(Account.class, receiverId, LockModeType.PESSIMISTIC_WRITE);
+                sender = em.find(Account.class, from.getAccountId(), LockModeType.PESSIMISTIC_WRITE);
+            } else {
+                sender = em.find(Account.class, from.getAccountId(), LockModeType.PESSIMISTIC_WRITE);
+                receiver = em.find(Account.class, receiverId,
+                    lockReceiver ? LockModeType.PESSIMISTIC_WRITE : LockModeType.NONE);
+            }
+
+            if (hotAccounts.balanceOf(em, sender) < amount) {
                 em.getTransaction().rollback();
-                return false;
+                return Outcome.INSUFFICIENT_BALANCE;
             }
 
             // Process transfer
             sender.setBalance(sender.getBalance() - amount);
-            receiver.setBalance(receiver.getBalance() + amount);
+            if (receiver.isHot()) {
+                // Striped credit: leaves the receiver's accounts row unlocked
+                hotAccounts.credit(em, receiver, amount);
+            } else {
+                if (!lockReceiver) {
+                    // Hot designation was removed in between
+                    em.refresh(receiver, LockModeType.PESSIMISTIC_WRITE);
+                }
+                receiver.setBalance(receiver.getBalance() + amount);
+            }
 
             Transaction t1 = new Transaction();
             t1.setAccount(sender);
@@ -220,99 +343,234 @@ public class ATMService {
 
             em.persist(t1);
             em.persist(t2);
+            rollups.record(em, RollupLedger.Metric.TRANSFER, amount, 1);
             em.getTransaction().commit();
+            JpaManager.recordWrite(sender.getAccountId());
+            JpaManager.recordWrite(receiver.getAccountId());
 
-            System.out.println("Transfer successful.");
-            from.setBalance(sender.getBalance());
-            return true;
+            from.setBalance(hotAccounts.balanceOf(em, sender));
+            return Outcome.SUCCESS;
         } catch (Exception e) {
             em.getTransaction().rollback();
-            System.out.println("Transfer failed: " + e.getMessage());
-            return false;
+            log.warn("Transfer failed for account {}: {}", from.getAccountId(), e.getMessage());
+            return Outcome.FAILED;
         } finally {
             em.close();
         }
     }
 
+    /* ================= BATCH TRANSFER ================= */
+
+    /**
+     * Applies many transfers at once (e.g. payroll). Items are checked in order against the
+     * current balances, then written in netted, JDBC-batched chunks. The result reports each
+     * item's outcome; items in a chunk that fails to commit are reported as FAILED.
+     */
+    public BatchTransferResult batchTransfer(List<TransferItem> items) {
+        return admitted(Priority.LOW, BatchTransferResult.busy(items.size()),
+            () -> new BatchTransferProcessor(rollups).process(items));
+    }
+
+    /* ================= DAILY REPORT ================= */
+
+    /** This terminal's totals for a day, read from the rollups rather than the transactions. */
+    public DailyReport getDailyReport(LocalDate day) {
+        return admitted(Priority.HIGH, DailyReport.BUSY, () -> doGetDailyReport(day));
+    }
+
+    private DailyReport doGetDailyReport(LocalDate day) {
+        try {
+            return rollups.report(day);
+        } catch (Exception e) {
+            log.warn("Daily report for {} failed: {}", day, e.getMessage());
+            return DailyReport.FAILED;
+        }
+    }
+
     /* ================= RECEIPT ================= */
 
     public void printReceipt(String type, double amount, double balance) {
-        EntityManager em = JpaManager.getEntityManager();
-        em.getTransaction().begin();
+        // Printing and paper/ink accounting happen on the printer thread
+        receiptPrinter.submit(type, amount, balance);
+    }
+
+    /* ================= WARM-UP ================= */
 
+    /**
+     * Prepares for the first customer: opens a few pooled connections on the primary and the
+     * read unit and runs the service's named queries once on each, so their SQL is translated
+     * and prepared before it is needed. Read-only.
+     */
+    public void warmUp() {
+        List<EntityManager> held = new ArrayList<>();
         try {
-            ATMState state = getATMState(em);
-            
-            // Decrement paper and ink when printing receipt
-            if (state.getPaper() > 0) {
-                state.setPaper(state.getPaper() - 1);
-            } else {
-                System.out.println("Warning: Out of paper!");
-            }
-            
-            if (state.getInk() > 0) {
-                state.setInk(state.getInk() - 1);
-            } else {
-                System.out.println("Warning: Out of ink!");
+            for (int i = 0; i < WARM_UP_CONNECTIONS; i++) {
+                EntityManager em = JpaManager.getEntityManager();
+                held.add(em);
+                em.getTransaction().begin(); // holds a connection until the loop is done
+                warmUpQueries(em);
             }
-            
-            em.merge(state);
-            em.getTransaction().commit();
+            EntityManager read = JpaManager.getReadEntityManager();
+            held.add(read);
+            warmUpQueries(read);
         } catch (Exception e) {
-            em.getTransaction().rollback();
-            System.out.println("Error updating receipt supplies: " + e.getMessage());
+            log.warn("Warm-up failed: {}", e.getMessage());
         } finally {
-            em.close();
+            for (EntityManager em : held) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
         }
+    }
+
+    private void warmUpQueries(EntityManager em) {
+        em.createNamedQuery(Account.FIND_BY_CARD_AND_PIN, Account.class)
+            .setParameter("card", "")
+            .setParameter("pin", "")
+            .getResultList();
+        em.createNamedQuery(Account.FIND_TRANSFER_TARGET, Object[].class)
+            .setParameter("card", "")
+            .getResultList();
+        em.find(Account.class, "");
+        hotAccounts.pendingCredits(em, "");
+        em.createNamedQuery(ATMState.CURRENT, ATMState.class).getResultList();
+        getCassettes(em);
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admission;
+    }
+
+    public void shutdown() {
+        receiptPrinter.close();
+        hotAccounts.close();
+    }
+
+    /* ================= HOT ACCOUNTS ================= */
+
+    /**
+     * Opts an account into striped crediting (e.g. a merchant receiving many transfers).
+     * Pass 0 stripes to switch it back; its pending credits are folded into the balance at once.
+     */
+    public void designateHotAccount(String accountId, int stripes) {
+        hotAccounts.designate(accountId, stripes);
+    }
+
+    public void startHotAccountCompactor(long intervalMillis) {
+        hotAccounts.startCompactor(intervalMillis);
+    }
 
-        System.out.println("\n--------- RECEIPT ---------");
-        System.out.printf("Type   : %s\n", type);
-        System.out.printf("Amount : %.2f\n", amount);
-        System.out.printf("Balance: %.2f\n", balance);
-        System.out.printf("Date   : %s\n", LocalDateTime.now().format(dateFormatter));
-        System.out.println("---------------------------\n");
+    public int compactHotAccounts() {
+        return hotAccounts.compact();
     }
 
     /* ================= TECHNICIAN OPERATIONS ================= */
 
-    public void viewATMStatus() {
-        EntityManager em = JpaManager.getEntityManager();
+    public ATMStatus viewATMStatus() {
+        return admitted(Priority.HIGH, ATMStatus.BUSY, this::doViewATMStatus);
+    }
+
+    private ATMStatus doViewATMStatus() {
+        EntityManager em = JpaManager.getReadEntityManager();
         try {
             ATMState state = getATMState(em);
-            System.out.println("\n===== ATM STATUS =====");
-            System.out.printf("Cash: $%.2f\n", state.getCash());
-            System.out.printf("Paper: %d\n", state.getPaper());
-            System.out.printf("Ink: %d\n", state.getInk());
-            System.out.println("====================\n");
+            List<ATMStatus.CassetteLevel> cassettes = new ArrayList<>();
+            for (Cassette cassette : getCassettes(em)) {
+                cassettes.add(new ATMStatus.CassetteLevel(cassette.getDenomination(), cassette.getCount()));
+            }
+            return new ATMStatus(Outcome.SUCCESS, state.getCash(), state.getPaper(), state.getInk(), cassettes,
+                admission.getActive(), admission.getQueueDepth(), admission.getShedCount());
+        } catch (Exception e) {
+            log.warn("Reading ATM status failed: {}", e.getMessage());
+            return ATMStatus.FAILED;
         } finally {
             em.close();
         }
     }
 
-    public void refillPaper(int amount) {
-        System.out.println("Technician actions are read-only in V1.");
+    public Outcome refillPaper(int amount) {
+        return Outcome.READ_ONLY; // Technician actions are read-only in V1
     }
 
-    public void refillInk(int amount) {
-        System.out.println("Technician actions are read-only in V1.");
+    public Outcome refillInk(int amount) {
+        return Outcome.READ_ONLY; // Technician actions are read-only in V1
     }
 
-    public void addCashToATM(double amount) {
-        System.out.println("Technician actions are read-only in V1.");
+    public Outcome addCashToATM(double amount) {
+        return Outcome.READ_ONLY; // Technician actions are read-only in V1
     }
 
-    public void collectAllCash() {
-        System.out.println("Technician actions are read-only in V1.");
+    public Outcome collectAllCash() {
+        return Outcome.READ_ONLY; // Technician actions are read-only in V1
     }
 
-    public void updateFirmware(String version) {
-        System.out.println("Technician actions are read-only in V1.");
+    public Outcome updateFirmware(String version) {
+        return Outcome.READ_ONLY; // Technician actions are read-only in V1
     }
 
     /* ================= HELPER METHODS ================= */
 
+    // Runs a database operation under the admission limit; answers with the busy result when shed
+    private <T> T admitted(Priority priority, T busy, Supplier<T> operation) {
+        try {
+            admission.acquire(priority);
+        } catch (ATMBusyException e) {
+            return busy;
+        }
+        try {
+            return operation.get();
+        } finally {
+            admission.release();
+        }
+    }
+
     private ATMState getATMState(EntityManager em) {
-        TypedQuery<ATMState> q = em.createQuery("SELECT a FROM ATMState a", ATMState.class);
+        TypedQuery<ATMState> q = em.createNamedQuery(ATMState.CURRENT, ATMState.class);
+        return q.getSingleResult();
+    }
+
+    // Every writer of the ATM state or the cassettes holds this lock; take it after account locks
+    private ATMState lockATMState(EntityManager em) {
+        TypedQuery<ATMState> q = em.createNamedQuery(ATMState.CURRENT, ATMState.class);
+        q.setLockMode(LockModeType.PESSIMISTIC_WRITE);
         return q.getSingleResult();
     }
+
+    private List<Cassette> getCassettes(EntityManager em) {
+        TypedQuery<Cassette> q = em.createNamedQuery(Cassette.FIND_ALL, Cassette.class);
+        return q.getResultList();
+    }
+
+    // Cassette counts lined up with the planner's denominations; unknown denominations are ignored
+    private int[] noteCounts(List<Cassette> cassettes) {
+        int[] counts = new int[denominations.length];
+        for (Cassette cassette : cassettes) {
+            int i = denominationIndex(cassette.getDenomination());
+            if (i >= 0) {
+                counts[i] += cassette.getCount();
+            }
+        }
+        return counts;
+    }
+
+    private void dispense(List<Cassette> cassettes, int[] notes) {
+        for (Cassette cassette : cassettes) {
+            int i = denominationIndex(cassette.getDenomination());
+            if (i >= 0 && notes[i] > 0) {
+                cassette.dispense(notes[i]);
+                notes[i] = 0;
+            }
+        }
+    }
+
+    private int denominationIndex(int denomination) {
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] == denomination) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,22 @@
+package com.atm.service;
+
+import java.util.List;
+
+/** Snapshot of the machine for the technician status view; the fields are zero unless it succeeded. */
+public record ATMStatus(Outcome outcome, double cash, int paper, int ink, List<CassetteLevel> cassettes,
+                        int activeSessions, int queuedSessions, long shedSessions) {
+
+    static final ATMStatus BUSY = new ATMStatus(Outcome.BUSY, 0, 0, 0, List.of(), 0, 0, 0);
+    static final ATMStatus FAILED = new ATMStatus(Outcome.FAILED, 0, 0, 0, List.of(), 0, 0, 0);
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+
+    public record CassetteLevel(int denomination, int count) {
+
+        public double value() {
+            return (double) denomination * count;
+        }
+    }
+}
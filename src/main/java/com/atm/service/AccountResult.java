@@ -0,0 +1,36 @@
+package com.atm.service;
+
+import com.atm.model.Account;
+
+/** Outcome of {@link ATMService#getAccountDetails}; carries the account when it was read. */
+public final class AccountResult {
+
+    static final AccountResult NOT_FOUND = new AccountResult(Outcome.ACCOUNT_NOT_FOUND, null);
+    static final AccountResult BUSY = new AccountResult(Outcome.BUSY, null);
+    static final AccountResult FAILED = new AccountResult(Outcome.FAILED, null);
+
+    private final Outcome outcome;
+    private final Account account;
+
+    private AccountResult(Outcome outcome, Account account) {
+        this.outcome = outcome;
+        this.account = account;
+    }
+
+    static AccountResult success(Account account) {
+        return new AccountResult(Outcome.SUCCESS, account);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+
+    /** The account, or null when it could not be read. */
+    public Account getAccount() {
+        return account;
+    }
+}
@@ -0,0 +1,205 @@
+package com.atm.service;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many service operations use the database at once.
+ *
+ * Up to maxConcurrent callers run; the next maxQueue wait, highest priority first and in
+ * arrival order within a priority. A caller that would exceed the queue, or whose wait passes
+ * the deadline, is rejected at once with {@link ATMBusyException} rather than piling more load
+ * on the database. When the queue is full, a higher-priority arrival takes the place of the
+ * lowest-priority waiter.
+ */
+public class AdmissionController {
+
+    public enum Priority {
+        HIGH,    // technician, balance checks
+        NORMAL,  // login, deposit, withdraw, statements
+        LOW      // transfers, batch work
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENT = 16;
+    private static final int DEFAULT_MAX_QUEUE = 64;
+    private static final long DEFAULT_MAX_WAIT_MS = 2000;
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private long sequence;
+    private int active;
+    private long admitted;
+    private long shed;
+
+    public AdmissionController() {
+        this(intProperty("atm.admission.max.concurrent", DEFAULT_MAX_CONCURRENT),
+            intProperty("atm.admission.max.queue", DEFAULT_MAX_QUEUE),
+            intProperty("atm.admission.max.wait.ms", (int) DEFAULT_MAX_WAIT_MS));
+    }
+
+    public AdmissionController(int maxConcurrent, int maxQueue, long maxWaitMillis) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /** Waits for a slot; every successful call must be paired with {@link #release()}. */
+    public void acquire(Priority priority) {
+        lock.lock();
+        try {
+            if (active < maxConcurrent && waiters.isEmpty()) {
+                active++;
+                admitted++;
+                return;
+            }
+            if (waiters.size() >= maxQueue && !evictLowerThan(priority)) {
+                shed++;
+                throw new ATMBusyException("ATM is busy, please retry.");
+            }
+
+            Waiter waiter = new Waiter(priority, sequence++, lock.newCondition());
+            waiters.add(waiter);
+
+            long remaining = maxWaitNanos;
+            try {
+                while (!waiter.granted && !waiter.evicted) {
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        shed++;
+                        throw new ATMBusyException("ATM is busy, please retry.");
+                    }
+                    remaining = waiter.signal.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    releaseLocked();
+                } else {
+                    waiters.remove(waiter);
+                }
+                shed++;
+                throw new ATMBusyException("Interrupted while waiting for the ATM.");
+            }
+            if (waiter.evicted) {
+                throw new ATMBusyException("ATM is busy, please retry.");
+            }
+            admitted++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Hands the slot straight to the next waiter, so a new arrival cannot jump the queue
+    private void releaseLocked() {
+        Waiter next = waiters.poll();
+        if (next == null) {
+            active--;
+        } else {
+            next.granted = true;
+            next.signal.signal();
+        }
+    }
+
+    private boolean evictLowerThan(Priority priority) {
+        Waiter lowest = null;
+        for (Waiter w : waiters) {
+            if (lowest == null || w.compareTo(lowest) > 0) {
+                lowest = w;
+            }
+        }
+        if (lowest == null || lowest.priority.compareTo(priority) <= 0) {
+            return false;
+        }
+        waiters.remove(lowest);
+        lowest.evicted = true;
+        lowest.signal.signal();
+        shed++;
+        return true;
+    }
+
+    /* ================= METRICS ================= */
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAdmittedCount() {
+        lock.lock();
+        try {
+            return admitted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getShedCount() {
+        lock.lock();
+        try {
+            return shed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        String fromProperty = System.getProperty(name);
+        if (fromProperty == null || fromProperty.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(fromProperty.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final Priority priority;
+        private final long sequence;
+        private final Condition signal;
+        private boolean granted;
+        private boolean evicted;
+
+        Waiter(Priority priority, long sequence, Condition signal) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.signal = signal;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
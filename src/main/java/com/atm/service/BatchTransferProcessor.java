@@ -0,0 +1,204 @@
+package com.atm.service;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import com.atm.model.BalanceDelta;
+import com.atm.service.BatchTransferResult.Status;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Applies a list of transfers with as few database round trips as possible.
+ *
+ * Items are processed in chunks, each in a single transaction. A chunk first locks the rows
+ * of every account it names, in id order, and validates its items in order against those
+ * locked balances, as if they ran one after another; an item that fails is reported on its
+ * own and the rest go ahead.
+ *
+ * The accepted items' balance changes are netted per account into one UPDATE each, and their
+ * TRANSFER_OUT/TRANSFER_IN rows are inserted, all as JDBC batches, together with the chunk's
+ * transfer totals in the daily rollups. A chunk that fails is rolled back and its accepted
+ * items reported as FAILED; chunks already committed stay applied.
+ */
+class BatchTransferProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchTransferProcessor.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String UPDATE_BALANCE =
+        "UPDATE accounts SET balance = balance + ? WHERE account_id = ? AND balance + ? "
+            + "+ COALESCE((SELECT SUM(d.amount) FROM balance_deltas d WHERE d.account_id = ?), 0) >= 0";
+    private static final String INSERT_TRANSACTION =
+        "INSERT INTO transactions (account_id, amount, type, time, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final RollupLedger rollups;
+
+    BatchTransferProcessor(RollupLedger rollups) {
+        this.rollups = rollups;
+    }
+
+    BatchTransferResult process(List<TransferItem> items) {
+        BatchTransferResult result = new BatchTransferResult(items.size());
+
+        List<Integer> wellFormed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (isWellFormed(items.get(i))) {
+                wellFormed.add(i);
+            } else {
+                result.set(i, Status.INVALID);
+            }
+        }
+
+        for (int start = 0; start < wellFormed.size(); start += CHUNK_SIZE) {
+            applyChunk(items, wellFormed.subList(start, Math.min(start + CHUNK_SIZE, wellFormed.size())), result);
+        }
+        return result;
+    }
+
+    private static boolean isWellFormed(TransferItem item) {
+        return item != null && item.fromAccountId() != null && item.toAccountId() != null
+            && !item.fromAccountId().equals(item.toAccountId())
+            && item.amount() > 0 && !Double.isInfinite(item.amount());
+    }
+
+    private Status validate(TransferItem item, Map<String, Double> balances) {
+        Double fromBalance = balances.get(item.fromAccountId());
+        if (fromBalance == null || !balances.containsKey(item.toAccountId())) {
+            return Status.ACCOUNT_NOT_FOUND;
+        }
+        if (fromBalance < item.amount()) {
+            return Status.INSUFFICIENT_FUNDS;
+        }
+        return Status.APPLIED;
+    }
+
+    private void applyChunk(List<TransferItem> items, List<Integer> chunk, BatchTransferResult result) {
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+
+        List<Integer> accepted = new ArrayList<>();
+        try {
+            Map<String, Double> balances = lockBalances(em, items, chunk);
+
+            // Net change per account of the items that pass against the locked balances
+            Map<String, Double> net = new TreeMap<>();
+            double transferred = 0;
+            for (int index : chunk) {
+                TransferItem item = items.get(index);
+                Status status = validate(item, balances);
+                result.set(index, status);
+                if (status == Status.APPLIED) {
+                    balances.merge(item.fromAccountId(), -item.amount(), Double::sum);
+                    balances.merge(item.toAccountId(), item.amount(), Double::sum);
+                    net.merge(item.fromAccountId(), -item.amount(), Double::sum);
+                    net.merge(item.toAccountId(), item.amount(), Double::sum);
+                    transferred += item.amount();
+                    accepted.add(index);
+                }
+            }
+
+            if (!accepted.isEmpty()) {
+                write(em, items, accepted, net);
+                rollups.record(em, RollupLedger.Metric.TRANSFER, transferred, accepted.size());
+            }
+
+            em.getTransaction().commit();
+            for (String accountId : net.keySet()) {
+                JpaManager.recordWrite(accountId);
+            }
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            log.warn("Batch transfer chunk failed: {}", e.getMessage());
+            for (int index : accepted) {
+                result.set(index, Status.FAILED);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    // Locks the chunk's account rows in id order; the balances include pending credits
+    private static Map<String, Double> lockBalances(EntityManager em, List<TransferItem> items, List<Integer> chunk) {
+        Set<String> ids = new TreeSet<>();
+        for (int index : chunk) {
+            ids.add(items.get(index).fromAccountId());
+            ids.add(items.get(index).toAccountId());
+        }
+
+        Map<String, Double> balances = new HashMap<>();
+        for (Account account : em.createNamedQuery(Account.LOCK_BY_IDS, Account.class)
+                .setParameter("ids", ids)
+                .getResultList()) {
+            balances.put(account.getAccountId(), account.getBalance());
+        }
+
+        // Hot accounts also have credits pending in their stripes; those only ever grow meanwhile
+        List<Object[]> pending = em.createNamedQuery(BalanceDelta.PENDING_BY_ACCOUNTS, Object[].class)
+            .setParameter("ids", ids)
+            .getResultList();
+        for (Object[] row : pending) {
+            balances.merge((String) row[0], (Double) row[1], Double::sum);
+        }
+        return balances;
+    }
+
+    private static void write(EntityManager em, List<TransferItem> items, List<Integer> accepted,
+                              Map<String, Double> net) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        em.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(UPDATE_BALANCE)) {
+                for (Map.Entry<String, Double> entry : net.entrySet()) {
+                    update.setDouble(1, entry.getValue());
+                    update.setString(2, entry.getKey());
+                    update.setDouble(3, entry.getValue());
+                    update.setString(4, entry.getKey());
+                    update.addBatch();
+                }
+                // The rows are locked and were validated, so the guard can only trip on a bug
+                for (int updated : update.executeBatch()) {
+                    if (updated == 0) {
+                        throw new IllegalStateException("Balance changed under lock");
+                    }
+                }
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION)) {
+                for (int index : accepted) {
+                    TransferItem item = items.get(index);
+                    addTransaction(insert, item.fromAccountId(), item.amount(), "TRANSFER_OUT", now);
+                    addTransaction(insert, item.toAccountId(), item.amount(), "TRANSFER_IN", now);
+                }
+                insert.executeBatch();
+            }
+        });
+    }
+
+    private static void addTransaction(PreparedStatement insert, String accountId, double amount,
+                                       String type, Timestamp time) throws SQLException {
+        insert.setString(1, accountId);
+        insert.setDouble(2, amount);
+        insert.setString(3, type);
+        insert.setTimestamp(4, time);
+        insert.setTimestamp(5, time);
+        insert.addBatch();
+    }
+}
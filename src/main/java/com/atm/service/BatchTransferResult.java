@@ -0,0 +1,55 @@
+package com.atm.service;
+
+import java.util.Arrays;
+
+/** Per-item outcome of {@link ATMService#batchTransfer}, in the order the items were given. */
+public class BatchTransferResult {
+
+    public enum Status {
+        APPLIED,
+        INVALID,
+        ACCOUNT_NOT_FOUND,
+        INSUFFICIENT_FUNDS,
+        FAILED,
+        BUSY
+    }
+
+    private final Status[] statuses;
+
+    BatchTransferResult(int size) {
+        this.statuses = new Status[size];
+    }
+
+    // Every item refused because the ATM shed the batch
+    static BatchTransferResult busy(int size) {
+        BatchTransferResult result = new BatchTransferResult(size);
+        Arrays.fill(result.statuses, Status.BUSY);
+        return result;
+    }
+
+    void set(int index, Status status) {
+        statuses[index] = status;
+    }
+
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public int count(Status status) {
+        int count = 0;
+        for (Status s : statuses) {
+            if (s == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isFullyApplied() {
+        return count(Status.APPLIED) == statuses.length;
+    }
+}
@@ -0,0 +1,18 @@
+package com.atm.service;
+
+import java.time.LocalDate;
+
+/** A terminal's totals for one day, read from the rollups; the totals are zero unless it succeeded. */
+public record DailyReport(Outcome outcome, String terminalId, LocalDate day,
+                          double withdrawnAmount, int withdrawalCount,
+                          double depositedAmount, int depositCount,
+                          double transferredAmount, int transferCount,
+                          int receiptCount) {
+
+    static final DailyReport BUSY = new DailyReport(Outcome.BUSY, null, null, 0, 0, 0, 0, 0, 0, 0);
+    static final DailyReport FAILED = new DailyReport(Outcome.FAILED, null, null, 0, 0, 0, 0, 0, 0, 0);
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+}
@@ -0,0 +1,215 @@
+package com.atm.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Chooses which notes to dispense for a withdrawal.
+ *
+ * For every amount up to the table limit a handful of candidate note combinations is
+ * precomputed once (fewest notes, most of each denomination, and fewest notes without each
+ * denomination). Planning then only checks those candidates against the cassette counts and
+ * picks the one that leaves the emptiest cassette as full as possible, so cassettes run down
+ * evenly. Amounts above the table, or where no candidate fits the notes loaded, fall back to
+ * a bounded-count search over the notes actually loaded.
+ */
+public class DispensePlanner {
+
+    public static final int[] STANDARD_DENOMINATIONS = {100, 50, 20, 10};
+    public static final int DEFAULT_TABLE_LIMIT = 5000;
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int[] denominations;   // descending
+    private final int unit;              // gcd of the denominations
+    private final int maxUnits;
+    private final int[][][] candidates;  // [amount / unit][candidate][denomination index]
+
+    public DispensePlanner(int[] denominations, int tableLimit) {
+        this.denominations = Arrays.stream(denominations).boxed()
+            .sorted((a, b) -> b - a)
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.unit = Arrays.stream(this.denominations).reduce(0, DispensePlanner::gcd);
+        this.maxUnits = tableLimit / unit;
+        this.candidates = buildTable();
+    }
+
+    public int[] getDenominations() {
+        return denominations.clone();
+    }
+
+    /**
+     * Returns how many notes of each denomination (in {@link #getDenominations()} order) to
+     * dispense, or null if the amount cannot be paid out from the given cassette counts.
+     */
+    public int[] plan(double amount, int[] counts) {
+        if (amount <= 0 || amount != Math.rint(amount)) {
+            return null;
+        }
+        long whole = (long) amount;
+        if (whole % unit != 0) {
+            return null;
+        }
+
+        long units = whole / unit;
+        if (units <= maxUnits) {
+            int[] best = null;
+            long bestScore = Long.MIN_VALUE;
+            for (int[] candidate : candidates[(int) units]) {
+                long score = score(candidate, counts);
+                if (score > bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            if (best != null) {
+                return best.clone();
+            }
+        }
+
+        return units < Integer.MAX_VALUE ? search((int) units, counts) : null;
+    }
+
+    // Smallest cassette count left after dispensing, ties broken by fewer notes.
+    // Long.MIN_VALUE when the candidate needs more notes than are loaded.
+    private long score(int[] candidate, int[] counts) {
+        int minLeft = Integer.MAX_VALUE;
+        int notes = 0;
+        for (int i = 0; i < candidate.length; i++) {
+            int left = counts[i] - candidate[i];
+            if (left < 0) {
+                return Long.MIN_VALUE;
+            }
+            minLeft = Math.min(minLeft, left);
+            notes += candidate[i];
+        }
+        return ((long) minLeft << 32) - notes;
+    }
+
+    // Bounded-count coin search over the loaded notes, O(denominations x amount)
+    private int[] search(int units, int[] counts) {
+        long loaded = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            loaded += (long) denominations[i] / unit * counts[i];
+        }
+        if (units > loaded) {
+            return null;
+        }
+
+        int k = denominations.length;
+        boolean[] reachable = new boolean[units + 1];
+        int[][] used = new int[k][units + 1];
+        reachable[0] = true;
+
+        for (int i = 0; i < k; i++) {
+            int d = denominations[i] / unit;
+            for (int u = d; u <= units; u++) {
+                if (!reachable[u] && reachable[u - d] && used[i][u - d] < counts[i]) {
+                    reachable[u] = true;
+                    used[i][u] = used[i][u - d] + 1;
+                }
+            }
+        }
+        if (!reachable[units]) {
+            return null;
+        }
+
+        int[] notes = new int[k];
+        int u = units;
+        for (int i = k - 1; i >= 0 && u > 0; i--) {
+            notes[i] = used[i][u];
+            u -= notes[i] * (denominations[i] / unit);
+        }
+        return notes;
+    }
+
+    /* ================= TABLE CONSTRUCTION ================= */
+
+    private int[][][] buildTable() {
+        int k = denominations.length;
+        int[] units = Arrays.stream(denominations).map(d -> d / unit).toArray();
+
+        // lastNote[skip][u]: denomination index of the last note in a fewest-notes combination
+        // for u units, never using denomination 'skip' (skip == k means all are allowed).
+        int[][] lastNote = new int[k + 1][];
+        for (int skip = 0; skip <= k; skip++) {
+            lastNote[skip] = fewestNotes(units, skip);
+        }
+
+        int[][][] table = new int[maxUnits + 1][][];
+        for (int u = 0; u <= maxUnits; u++) {
+            List<int[]> found = new ArrayList<>();
+
+            addDistinct(found, combination(u, lastNote[k], units));
+            for (int i = 0; i < k; i++) {
+                addDistinct(found, mostOf(i, u, lastNote[k], units));
+                addDistinct(found, combination(u, lastNote[i], units));
+            }
+            table[u] = found.toArray(new int[0][]);
+        }
+        return table;
+    }
+
+    private int[] fewestNotes(int[] units, int skip) {
+        int[] notes = new int[maxUnits + 1];
+        int[] last = new int[maxUnits + 1];
+        Arrays.fill(notes, UNREACHABLE);
+        Arrays.fill(last, -1);
+        notes[0] = 0;
+
+        for (int u = 1; u <= maxUnits; u++) {
+            for (int i = 0; i < units.length; i++) {
+                if (i == skip || units[i] > u || notes[u - units[i]] == UNREACHABLE) {
+                    continue;
+                }
+                if (notes[u - units[i]] + 1 < notes[u]) {
+                    notes[u] = notes[u - units[i]] + 1;
+                    last[u] = i;
+                }
+            }
+        }
+        return last;
+    }
+
+    private int[] combination(int u, int[] last, int[] units) {
+        int[] notes = new int[units.length];
+        while (u > 0) {
+            int i = last[u];
+            if (i < 0) {
+                return null;
+            }
+            notes[i]++;
+            u -= units[i];
+        }
+        return notes;
+    }
+
+    private int[] mostOf(int index, int u, int[] last, int[] units) {
+        for (int n = u / units[index]; n >= 0; n--) {
+            int[] rest = combination(u - n * units[index], last, units);
+            if (rest != null) {
+                rest[index] += n;
+                return rest;
+            }
+        }
+        return null;
+    }
+
+    private static void addDistinct(List<int[]> found, int[] combination) {
+        if (combination == null) {
+            return;
+        }
+        for (int[] existing : found) {
+            if (Arrays.equals(existing, combination)) {
+                return;
+            }
+        }
+        found.add(combination);
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,179 @@
+package com.atm.service;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import com.atm.model.BalanceDelta;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credits for designated hot accounts (merchant, settlement) without touching the accounts row.
+ *
+ * Each credit adds to one of N stripe rows in balance_deltas chosen at random, so concurrent
+ * transfers into the same account rarely wait on each other. The usable balance is the
+ * account's balance plus its stripes; the compactor periodically moves the stripes into the
+ * accounts row. Switching an account back to plain crediting folds its stripes in at once; the
+ * compactor also sweeps any credit that lands in a stripe after that.
+ */
+public class HotAccountLedger implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(HotAccountLedger.class);
+
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Turns striped crediting on for an account (stripes > 0) or off (stripes == 0).
+     * Switching it off folds the pending credits into the balance in the same transaction,
+     * since reads and debits of a plain account no longer look at its stripes.
+     */
+    public void designate(String accountId, int stripes) {
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+
+        try {
+            // Locked: setting the stripes writes the whole row, balance included
+            Account account = em.find(Account.class, accountId, LockModeType.PESSIMISTIC_WRITE);
+            if (account == null) {
+                throw new IllegalArgumentException("Unknown account " + accountId);
+            }
+            account.setCreditStripes(stripes);
+            if (stripes == 0) {
+                fold(em, account);
+            }
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                if (em.find(BalanceDelta.class, BalanceDelta.idFor(accountId, stripe)) == null) {
+                    em.persist(new BalanceDelta(accountId, stripe));
+                }
+            }
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /** Adds a credit to a random stripe, inside the caller's transaction. */
+    public void credit(EntityManager em, Account account, double amount) {
+        int stripe = ThreadLocalRandom.current().nextInt(account.getCreditStripes());
+        em.createNativeQuery("UPDATE balance_deltas SET amount = amount + ?1 WHERE id = ?2")
+            .setParameter(1, amount)
+            .setParameter(2, BalanceDelta.idFor(account.getAccountId(), stripe))
+            .executeUpdate();
+    }
+
+    /** Credits not yet folded into the accounts row. */
+    public double pendingCredits(EntityManager em, String accountId) {
+        return em.createNamedQuery(BalanceDelta.PENDING_SUM, Double.class)
+            .setParameter("id", accountId)
+            .getSingleResult();
+    }
+
+    /** Balance including pending credits. */
+    public double balanceOf(EntityManager em, Account account) {
+        return account.isHot()
+            ? account.getBalance() + pendingCredits(em, account.getAccountId())
+            : account.getBalance();
+    }
+
+    /**
+     * Folds the stripes of every account with pending credits into its balance, including
+     * accounts switched off while a credit was in flight. Returns the number of accounts folded.
+     */
+    public int compact() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            List<String> pending = em.createNamedQuery(BalanceDelta.FIND_PENDING_ACCOUNTS, String.class)
+                .getResultList();
+
+            int folded = 0;
+            for (String accountId : pending) {
+                if (compact(em, accountId)) {
+                    folded++;
+                }
+            }
+            return folded;
+        } finally {
+            em.close();
+        }
+    }
+
+    private boolean compact(EntityManager em, String accountId) {
+        em.getTransaction().begin();
+
+        try {
+            Account account = em.find(Account.class, accountId, LockModeType.PESSIMISTIC_WRITE);
+            double total = fold(em, account);
+
+            em.getTransaction().commit();
+            return total != 0;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            log.warn("Hot account compaction failed for {}: {}", accountId, e.getMessage());
+            return false;
+        } finally {
+            em.clear();
+        }
+    }
+
+    // Moves the stripes into the locked account row; returns the amount moved
+    private static double fold(EntityManager em, Account account) {
+        List<BalanceDelta> deltas = em.createNamedQuery(BalanceDelta.FIND_BY_ACCOUNT, BalanceDelta.class)
+            .setParameter("id", account.getAccountId())
+            .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+            .getResultList();
+
+        double total = 0;
+        for (BalanceDelta delta : deltas) {
+            total += delta.getAmount();
+            delta.setAmount(0);
+        }
+        account.setBalance(account.getBalance() + total);
+        return total;
+    }
+
+    /* ================= BACKGROUND COMPACTOR ================= */
+
+    public synchronized void startCompactor(long intervalMillis) {
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hot-account-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // An exception escaping a scheduled task would cancel the schedule
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.warn("Hot account compaction failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+    }
+}
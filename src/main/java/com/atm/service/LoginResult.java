@@ -0,0 +1,36 @@
+package com.atm.service;
+
+import com.atm.model.Account;
+
+/** Outcome of {@link ATMService#login}; carries the account when the login succeeded. */
+public final class LoginResult {
+
+    static final LoginResult INVALID_CREDENTIALS = new LoginResult(Outcome.INVALID_CREDENTIALS, null);
+    static final LoginResult BUSY = new LoginResult(Outcome.BUSY, null);
+    static final LoginResult FAILED = new LoginResult(Outcome.FAILED, null);
+
+    private final Outcome outcome;
+    private final Account account;
+
+    private LoginResult(Outcome outcome, Account account) {
+        this.outcome = outcome;
+        this.account = account;
+    }
+
+    static LoginResult success(Account account) {
+        return new LoginResult(Outcome.SUCCESS, account);
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+
+    /** The logged-in account, or null when the login did not succeed. */
+    public Account getAccount() {
+        return account;
+    }
+}
@@ -0,0 +1,24 @@
+package com.atm.service;
+
+/**
+ * Result code of a customer or technician operation. The service returns these instead of
+ * printing, and the console UI decides what to show for each.
+ */
+public enum Outcome {
+    SUCCESS,
+    INVALID_AMOUNT,
+    INVALID_CREDENTIALS,
+    INSUFFICIENT_BALANCE,
+    ATM_INSUFFICIENT_CASH,
+    OUT_OF_PAPER,
+    OUT_OF_INK,
+    CANNOT_DISPENSE,
+    ACCOUNT_NOT_FOUND,
+    READ_ONLY,
+    BUSY,
+    FAILED;
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
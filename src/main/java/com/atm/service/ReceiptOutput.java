@@ -0,0 +1,14 @@
+package com.atm.service;
+
+/**
+ * Destination for rendered receipts (console, printer driver, file, ...).
+ * The text passed in is a reused buffer, so implementations must not keep a reference to it.
+ */
+public interface ReceiptOutput {
+
+    void print(CharSequence receipt);
+
+    static ReceiptOutput console() {
+        return receipt -> System.out.print(receipt);
+    }
+}
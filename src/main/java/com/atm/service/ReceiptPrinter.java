@@ -0,0 +1,204 @@
+package com.atm.service;
+
+import com.atm.db.JpaManager;
+import com.atm.model.ATMState;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Formatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prints receipts on a background thread so the customer does not wait for the printer.
+ * Paper and ink usage is counted in memory and written to the ATM state in batches.
+ * The queue is bounded: when the printer falls behind, {@link #submit} blocks the caller.
+ * A receipt that fails to print is logged and dropped; the worker carries on with the next one.
+ */
+public class ReceiptPrinter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReceiptPrinter.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int SUPPLY_BATCH_SIZE = 10;
+    private static final long SUPPLY_FLUSH_INTERVAL_MS = 2000;
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
+
+    private static final String USE_SUPPLIES =
+        "UPDATE atm_state SET paper = GREATEST(paper - :used, 0), ink = GREATEST(ink - :used, 0)";
+
+    private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final BlockingQueue<ReceiptJob> queue;
+    private final ReceiptOutput output;
+    private final RollupLedger rollups = new RollupLedger();
+    private final Thread worker;
+
+    // Receipts submitted whose paper/ink has not been written to the database yet.
+    private final AtomicInteger pendingSupplies = new AtomicInteger();
+
+    // Only touched by the worker thread.
+    private final StringBuilder buffer = new StringBuilder(256);
+    private final Formatter formatter = new Formatter(buffer);
+    private int unsavedSupplies;
+
+    private volatile boolean running = true;
+
+    public ReceiptPrinter(ReceiptOutput output) {
+        this(output, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ReceiptPrinter(ReceiptOutput output, int queueCapacity) {
+        this.output = output;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = new Thread(this::run, "receipt-printer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Queues a receipt, waiting for room if the printer is behind. */
+    public void submit(String type, double amount, double balance) {
+        pendingSupplies.incrementAndGet();
+        try {
+            queue.put(new ReceiptJob(type, amount, balance, LocalDateTime.now(), null));
+        } catch (InterruptedException e) {
+            pendingSupplies.decrementAndGet();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Number of receipts whose paper and ink are not yet reflected in the ATM state. */
+    public int getPendingSupplies() {
+        return pendingSupplies.get();
+    }
+
+    /**
+     * Waits until every queued receipt is printed and its supplies are saved.
+     * Gives up after a bounded time and returns false, so a stuck printer cannot hang the caller.
+     */
+    public boolean flush() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_TIMEOUT_MS);
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            if (queue.offer(new ReceiptJob(null, 0, 0, null, done), FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                && done.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            log.warn("Receipt printer did not drain within {} ms", FLUSH_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        flush();
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(FLUSH_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            ReceiptJob job;
+            try {
+                job = queue.poll(SUPPLY_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (job == null) {
+                saveSupplies();
+            } else if (job.done() != null) {
+                saveSupplies();
+                job.done().countDown();
+            } else {
+                print(job);
+            }
+        }
+        saveSupplies();
+    }
+
+    private void print(ReceiptJob job) {
+        try {
+            render(job);
+            output.print(buffer);
+        } catch (RuntimeException e) {
+            // Nothing was printed, so no paper or ink to account for
+            pendingSupplies.decrementAndGet();
+            log.error("Receipt could not be printed", e);
+            return;
+        }
+        unsavedSupplies++;
+        if (unsavedSupplies >= SUPPLY_BATCH_SIZE) {
+            saveSupplies();
+        }
+    }
+
+    private void render(ReceiptJob job) {
+        buffer.setLength(0);
+        buffer.append("\n--------- RECEIPT ---------\n");
+        formatter.format("Type   : %s\n", job.type());
+        formatter.format("Amount : %.2f\n", job.amount());
+        formatter.format("Balance: %.2f\n", job.balance());
+        buffer.append("Date   : ");
+        dateFormatter.formatTo(job.time(), buffer);
+        buffer.append("\n---------------------------\n\n");
+    }
+
+    private void saveSupplies() {
+        if (unsavedSupplies == 0) {
+            return;
+        }
+
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+
+        try {
+            // Touches only the supply columns, so it cannot overwrite a concurrent cash change
+            em.createNativeQuery(USE_SUPPLIES)
+                .setParameter("used", unsavedSupplies)
+                .executeUpdate();
+            ATMState state = em.createNamedQuery(ATMState.CURRENT, ATMState.class)
+                .getSingleResult();
+
+            if (state.getPaper() == 0) {
+                log.warn("Out of paper!");
+            }
+            if (state.getInk() == 0) {
+                log.warn("Out of ink!");
+            }
+            rollups.record(em, RollupLedger.Metric.RECEIPT, 0, unsavedSupplies);
+
+            em.getTransaction().commit();
+            pendingSupplies.addAndGet(-unsavedSupplies);
+            unsavedSupplies = 0;
+        } catch (Exception e) {
+            // Keep the count and retry on the next batch
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            log.warn("Error updating receipt supplies: {}", e.getMessage());
+        } finally {
+            em.close();
+        }
+    }
+
+    private record ReceiptJob(String type, double amount, double balance, LocalDateTime time,
+                              CountDownLatch done) {}
+}
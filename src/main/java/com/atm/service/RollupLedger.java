@@ -0,0 +1,152 @@
+package com.atm.service;
+
+import com.atm.db.JpaManager;
+import com.atm.model.DailyRollup;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-terminal, per-day totals kept up to date as operations commit.
+ *
+ * Each operation adds to one of a few stripe rows of today's rollup inside its own transaction,
+ * so the totals are exact and concurrent sessions rarely wait on the same row. A report reads
+ * only the day's stripe rows and never scans the transactions table.
+ */
+public class RollupLedger {
+
+    public enum Metric {
+        WITHDRAWAL("withdrawn_amount", "withdrawal_count"),
+        DEPOSIT("deposited_amount", "deposit_count"),
+        TRANSFER("transferred_amount", "transfer_count"),
+        RECEIPT(null, "receipt_count");
+
+        private final boolean hasAmount;
+        private final String sql;
+
+        Metric(String amountColumn, String countColumn) {
+            this.hasAmount = amountColumn != null;
+            this.sql = "UPDATE daily_rollups SET "
+                + (hasAmount ? amountColumn + " = " + amountColumn + " + :amount, " : "")
+                + countColumn + " = " + countColumn + " + :count WHERE id = :id";
+        }
+    }
+
+    private static final String DEFAULT_TERMINAL_ID = "ATM-1";
+    private static final int DEFAULT_STRIPES = 8;
+
+    private final String terminalId;
+    private final int stripes;
+
+    // Day whose stripe rows are known to exist
+    private volatile LocalDate preparedDay;
+
+    public RollupLedger() {
+        this(System.getProperty("atm.terminal.id", DEFAULT_TERMINAL_ID), DEFAULT_STRIPES);
+    }
+
+    public RollupLedger(String terminalId, int stripes) {
+        this.terminalId = terminalId;
+        this.stripes = Math.max(1, stripes);
+    }
+
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    /**
+     * Adds to today's totals inside the caller's transaction. Throws when the stripe row cannot
+     * be found even after creating the day's rows, so the caller rolls back instead of
+     * committing an operation the totals do not count.
+     */
+    public void record(EntityManager em, Metric metric, double amount, int count) {
+        LocalDate day = LocalDate.now();
+        if (!day.equals(preparedDay)) {
+            prepare(day);
+        }
+
+        String id = DailyRollup.idFor(terminalId, day, ThreadLocalRandom.current().nextInt(stripes));
+        if (update(em, metric, amount, count, id) == 0) {
+            // Rows were removed underneath us (data reset or restore); create them again
+            prepare(day);
+            if (update(em, metric, amount, count, id) == 0) {
+                throw new IllegalStateException("Daily rollup row " + id + " is missing");
+            }
+        }
+    }
+
+    private int update(EntityManager em, Metric metric, double amount, int count, String id) {
+        Query q = em.createNativeQuery(metric.sql);
+        if (metric.hasAmount) {
+            q.setParameter("amount", amount);
+        }
+        return q.setParameter("count", count)
+            .setParameter("id", id)
+            .executeUpdate();
+    }
+
+    /** Today's or a past day's totals for this terminal. */
+    public DailyReport report(LocalDate day) {
+        EntityManager em = JpaManager.getReadEntityManager();
+        try {
+            List<DailyRollup> rows = em.createNamedQuery(DailyRollup.FIND_BY_TERMINAL_AND_DAY, DailyRollup.class)
+                .setParameter("terminal", terminalId)
+                .setParameter("day", day)
+                .getResultList();
+
+            double withdrawn = 0;
+            double deposited = 0;
+            double transferred = 0;
+            int withdrawals = 0;
+            int deposits = 0;
+            int transfers = 0;
+            int receipts = 0;
+            for (DailyRollup row : rows) {
+                withdrawn += row.getWithdrawnAmount();
+                withdrawals += row.getWithdrawalCount();
+                deposited += row.getDepositedAmount();
+                deposits += row.getDepositCount();
+                transferred += row.getTransferredAmount();
+                transfers += row.getTransferCount();
+                receipts += row.getReceiptCount();
+            }
+            return new DailyReport(Outcome.SUCCESS, terminalId, day, withdrawn, withdrawals, deposited, deposits,
+                transferred, transfers, receipts);
+        } finally {
+            em.close();
+        }
+    }
+
+    /* ================= STRIPE ROWS ================= */
+
+    // Creates the day's stripe rows in a short transaction of its own; another session may race us
+    private synchronized void prepare(LocalDate day) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            EntityManager em = JpaManager.getEntityManager();
+            em.getTransaction().begin();
+            try {
+                for (int stripe = 0; stripe < stripes; stripe++) {
+                    if (em.find(DailyRollup.class, DailyRollup.idFor(terminalId, day, stripe)) == null) {
+                        em.persist(new DailyRollup(terminalId, day, stripe));
+                    }
+                }
+                em.getTransaction().commit();
+                preparedDay = day;
+                return;
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                if (attempt == 1) {
+                    throw e;
+                }
+            } finally {
+                em.close();
+            }
+        }
+    }
+}
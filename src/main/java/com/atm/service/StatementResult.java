@@ -0,0 +1,16 @@
+package com.atm.service;
+
+import com.atm.archive.StatementEntry;
+
+import java.util.List;
+
+/** Outcome of {@link ATMService#getStatement}; entries are oldest first and empty unless it succeeded. */
+public record StatementResult(Outcome outcome, List<StatementEntry> entries) {
+
+    static final StatementResult BUSY = new StatementResult(Outcome.BUSY, List.of());
+    static final StatementResult FAILED = new StatementResult(Outcome.FAILED, List.of());
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+}
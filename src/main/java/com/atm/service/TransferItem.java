@@ -0,0 +1,4 @@
+package com.atm.service;
+
+/** One payment in a batch transfer. */
+public record TransferItem(String fromAccountId, String toAccountId, double amount) {}
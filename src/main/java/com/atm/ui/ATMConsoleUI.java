@@ -1,72 +1,142 @@
 package com.atm.ui;
 
 import com.atm.model.Account;
+import com.atm.service.AccountResult;
 import com.atm.service.ATMService;
+import com.atm.service.ATMStatus;
+import com.atm.service.DailyReport;
+import com.atm.service.LoginResult;
+import com.atm.service.Outcome;
 
-import java.util.Scanner;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ATMConsoleUI {
 
     private final ATMService service;
-    private final Scanner sc = new Scanner(System.in);
+    private final ConsoleInput input;
+    private final PrintStream out;
+
+    // Completes once the database is ready; the menu is shown before that
+    private final CompletableFuture<?> ready;
 
     public ATMConsoleUI(ATMService service) {
+        this(service, CompletableFuture.completedFuture(null));
+    }
+
+    public ATMConsoleUI(ATMService service, CompletableFuture<?> ready) {
+        this(service, ready, ConsoleInput.console(), System.out);
+    }
+
+    /** A console over other input and output, e.g. a session recorder or a replay. */
+    public ATMConsoleUI(ATMService service, CompletableFuture<?> ready, ConsoleInput input, PrintStream out) {
         this.service = service;
+        this.ready = ready;
+        this.input = input;
+        this.out = out;
     }
 
+    /** Runs the menus until the user exits or the input ends. */
     public void start() {
+        try {
+            mainMenu();
+        } catch (NoSuchElementException e) {
+            // Input closed mid-session
+        }
+    }
+
+    private void mainMenu() {
         while (true) {
-            System.out.println("\n===== ATM SYSTEM =====");
-            System.out.println("1. Customer");
-            System.out.println("2. Technician");
-            System.out.println("3. Exit");
-            System.out.print("Select: ");
+            out.println("\n===== ATM SYSTEM =====");
+            out.println("1. Customer");
+            out.println("2. Technician");
+            out.println("3. Exit");
+            out.print("Select: ");
             
-            String choice = sc.nextLine().trim();
+            String choice = readLine().trim();
+
+            if ((choice.equals("1") || choice.equals("2")) && !awaitReady()) {
+                break;
+            }
 
             if (choice.equals("1")) {
                 customerLogin();
             } else if (choice.equals("2")) {
                 technicianLogin();
             } else if (choice.equals("3")) {
-                System.out.println("Thank you for using ATM. Goodbye!");
+                out.println("Thank you for using ATM. Goodbye!");
                 break;
             } else {
-                System.out.println("Invalid choice. Try again.");
+                out.println("Invalid choice. Try again.");
             }
         }
     }
 
+    private String readLine() {
+        return endOfInputIfNull(input.readLine());
+    }
+
+    // Card numbers, PINs and the technician code; recorders keep them out of session files
+    private String readSecret(ConsoleInput.Secret kind) {
+        return endOfInputIfNull(input.readSecret(kind));
+    }
+
+    private static String endOfInputIfNull(String line) {
+        if (line == null) {
+            throw new NoSuchElementException("End of input");
+        }
+        return line;
+    }
+
+    private boolean awaitReady() {
+        if (!ready.isDone()) {
+            out.println("Starting up, please wait...");
+        }
+        try {
+            ready.join();
+            return true;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            out.println("ATM is unavailable: " + cause.getMessage());
+            return false;
+        }
+    }
+
     // ===== CUSTOMER FLOW =====
 
     private void customerLogin() {
-        System.out.print("\nEnter card number: ");
-        String card = sc.nextLine().trim();
-        System.out.print("Enter PIN: ");
-        String pin = sc.nextLine().trim();
+        out.print("\nEnter card number: ");
+        String card = readSecret(ConsoleInput.Secret.CARD).trim();
+        out.print("Enter PIN: ");
+        String pin = readSecret(ConsoleInput.Secret.PIN).trim();
 
-        Account acc = service.login(card, pin);
+        LoginResult result = service.login(card, pin);
 
-        if (acc == null) {
-            System.out.println("Login failed! Invalid card or PIN.");
+        if (!result.isSuccess()) {
+            out.println(result.getOutcome() == Outcome.INVALID_CREDENTIALS
+                ? "Login failed! Invalid card or PIN."
+                : message(result.getOutcome(), "Login"));
             return;
         }
 
-        System.out.println("\nWelcome! Login successful.");
-        customerMenu(acc);
+        out.println("\nWelcome! Login successful.");
+        customerMenu(result.getAccount());
     }
 
     private void customerMenu(Account account) {
         while (true) {
-            System.out.println("\n===== CUSTOMER MENU =====");
-            System.out.println("1. Withdraw");
-            System.out.println("2. Deposit");
-            System.out.println("3. Transfer");
-            System.out.println("4. Balance");
-            System.out.println("5. Exit");
-            System.out.print("Select: ");
+            out.println("\n===== CUSTOMER MENU =====");
+            out.println("1. Withdraw");
+            out.println("2. Deposit");
+            out.println("3. Transfer");
+            out.println("4. Balance");
+            out.println("5. Exit");
+            out.print("Select: ");
             
-            String choice = sc.nextLine().trim();
+            String choice = readLine().trim();
 
             if (choice.equals("1")) {
                 withdraw(account);
@@ -77,108 +147,181 @@ public class ATMConsoleUI {
             } else if (choice.equals("4")) {
                 checkBalance(account);
             } else if (choice.equals("5")) {
-                System.out.println("Thank you for using ATM!");
+                out.println("Thank you for using ATM!");
                 break;
             } else {
-                System.out.println("Invalid choice. Try again.");
+                out.println("Invalid choice. Try again.");
             }
         }
     }
 
     private void withdraw(Account account) {
-        System.out.print("\nEnter amount to withdraw: ");
+        out.print("\nEnter amount to withdraw: ");
         try {
-            double amount = Double.parseDouble(sc.nextLine().trim());
-            boolean success = service.withdraw(account, amount);
-            if (success) {
-                System.out.print("Print receipt? (yes/no): ");
-                String receipt = sc.nextLine().trim().toLowerCase();
+            double amount = Double.parseDouble(readLine().trim());
+            Outcome outcome = service.withdraw(account, amount);
+            out.println(message(outcome, "Withdrawal"));
+            if (outcome.isSuccess()) {
+                out.print("Print receipt? (yes/no): ");
+                String receipt = readLine().trim().toLowerCase();
                 if (receipt.equals("yes") || receipt.equals("y")) {
                     service.printReceipt("WITHDRAW", amount, account.getBalance());
                 }
             }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid amount.");
+            out.println("Invalid amount.");
         }
     }
 
     private void deposit(Account account) {
-        System.out.print("\nEnter amount to deposit: ");
+        out.print("\nEnter amount to deposit: ");
         try {
-            double amount = Double.parseDouble(sc.nextLine().trim());
-            boolean success = service.deposit(account, amount);
-            if (success) {
-                System.out.print("Print receipt? (yes/no): ");
-                String receipt = sc.nextLine().trim().toLowerCase();
+            double amount = Double.parseDouble(readLine().trim());
+            Outcome outcome = service.deposit(account, amount);
+            out.println(message(outcome, "Deposit"));
+            if (outcome.isSuccess()) {
+                out.print("Print receipt? (yes/no): ");
+                String receipt = readLine().trim().toLowerCase();
                 if (receipt.equals("yes") || receipt.equals("y")) {
                     service.printReceipt("DEPOSIT", amount, account.getBalance());
                 }
             }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid amount.");
+            out.println("Invalid amount.");
         }
     }
 
     private void transfer(Account account) {
-        System.out.print("\nEnter target card number: ");
-        String targetCard = sc.nextLine().trim();
+        out.print("\nEnter target card number: ");
+        String targetCard = readSecret(ConsoleInput.Secret.CARD).trim();
         
-        System.out.print("Enter amount to transfer: ");
+        out.print("Enter amount to transfer: ");
         try {
-            double amount = Double.parseDouble(sc.nextLine().trim());
-            boolean success = service.transfer(account, targetCard, amount);
-            if (success) {
-                System.out.print("Print receipt? (yes/no): ");
-                String receipt = sc.nextLine().trim().toLowerCase();
+            double amount = Double.parseDouble(readLine().trim());
+            Outcome outcome = service.transfer(account, targetCard, amount);
+            out.println(message(outcome, "Transfer"));
+            if (outcome.isSuccess()) {
+                out.print("Print receipt? (yes/no): ");
+                String receipt = readLine().trim().toLowerCase();
                 if (receipt.equals("yes") || receipt.equals("y")) {
                     service.printReceipt("TRANSFER", amount, account.getBalance());
                 }
             }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid amount.");
+            out.println("Invalid amount.");
         }
     }
 
     private void checkBalance(Account account) {
         // Refresh account balance
-        account = service.getAccountDetails(account.getAccountId());
-        System.out.println("\n===== YOUR BALANCE =====");
-        System.out.printf("Card: %s\n", account.getCardNumber());
-        System.out.printf("Balance: $%.2f\n", account.getBalance());
+        AccountResult result = service.getAccountDetails(account.getAccountId());
+        if (!result.isSuccess()) {
+            out.println(message(result.getOutcome(), "Balance inquiry"));
+            return;
+        }
+        account = result.getAccount();
+        out.println("\n===== YOUR BALANCE =====");
+        out.printf("Card: %s\n", account.getCardNumber());
+        out.printf("Balance: $%.2f\n", account.getBalance());
     }
 
     // ===== TECHNICIAN FLOW =====
 
     private void technicianLogin() {
-        System.out.print("\nEnter technician code: ");
-        String code = sc.nextLine().trim();
+        out.print("\nEnter technician code: ");
+        String code = readSecret(ConsoleInput.Secret.TECH_CODE).trim();
 
         if (!code.equals("TECH123")) {
-            System.out.println("Invalid technician code!");
+            out.println("Invalid technician code!");
             return;
         }
 
-        System.out.println("\nWelcome Technician!");
+        out.println("\nWelcome Technician!");
         technicianMenu();
     }
 
     private void technicianMenu() {
         while (true) {
-            System.out.println("\n===== TECHNICIAN MENU (READ-ONLY) =====");
-            System.out.println("1. View ATM Status");
-            System.out.println("2. Exit");
-            System.out.print("Select: ");
+            out.println("\n===== TECHNICIAN MENU (READ-ONLY) =====");
+            out.println("1. View ATM Status");
+            out.println("2. Today's Report");
+            out.println("3. Exit");
+            out.print("Select: ");
 
-            String choice = sc.nextLine().trim();
+            String choice = readLine().trim();
 
             if (choice.equals("1")) {
-                service.viewATMStatus();
+                printStatus(service.viewATMStatus());
             } else if (choice.equals("2")) {
-                System.out.println("Technician session ended.");
+                printReport(service.getDailyReport(LocalDate.now()));
+            } else if (choice.equals("3")) {
+                out.println("Technician session ended.");
                 break;
             } else {
-                System.out.println("Invalid choice. Try again.");
+                out.println("Invalid choice. Try again.");
             }
         }
     }
+
+    private void printStatus(ATMStatus status) {
+        if (!status.isSuccess()) {
+            out.println(message(status.outcome(), "Status"));
+            return;
+        }
+        out.println("\n===== ATM STATUS =====");
+        out.printf("Cash: $%.2f\n", status.cash());
+        out.printf("Paper: %d\n", status.paper());
+        out.printf("Ink: %d\n", status.ink());
+        for (ATMStatus.CassetteLevel cassette : status.cassettes()) {
+            out.printf("Cassette $%d: %d notes ($%.2f)\n",
+                cassette.denomination(), cassette.count(), cassette.value());
+        }
+        out.printf("Sessions: %d active, %d queued, %d shed\n",
+            status.activeSessions(), status.queuedSessions(), status.shedSessions());
+        out.println("====================\n");
+    }
+
+    private void printReport(DailyReport report) {
+        if (!report.isSuccess()) {
+            out.println(message(report.outcome(), "Report"));
+            return;
+        }
+        out.printf("\n===== DAILY REPORT %s %s =====\n", report.terminalId(), report.day());
+        out.printf("Withdrawn:   $%.2f (%d)\n", report.withdrawnAmount(), report.withdrawalCount());
+        out.printf("Deposited:   $%.2f (%d)\n", report.depositedAmount(), report.depositCount());
+        out.printf("Transferred: $%.2f (%d)\n", report.transferredAmount(), report.transferCount());
+        out.printf("Receipts:    %d\n", report.receiptCount());
+        out.println("====================\n");
+    }
+
+    // ===== OUTCOME MESSAGES =====
+
+    private static String message(Outcome outcome, String operation) {
+        switch (outcome) {
+            case SUCCESS:
+                return operation + " successful.";
+            case INVALID_AMOUNT:
+                return "Invalid amount. Please enter a positive number.";
+            case INVALID_CREDENTIALS:
+                return "Invalid card or PIN.";
+            case INSUFFICIENT_BALANCE:
+                return "Insufficient balance.";
+            case ATM_INSUFFICIENT_CASH:
+                return "ATM has insufficient cash.";
+            case OUT_OF_PAPER:
+                return "ATM is out of paper.";
+            case OUT_OF_INK:
+                return "ATM is out of ink.";
+            case CANNOT_DISPENSE:
+                return "ATM cannot dispense this amount with the notes loaded.";
+            case ACCOUNT_NOT_FOUND:
+                return "Target account not found.";
+            case READ_ONLY:
+                return "Technician actions are read-only in V1.";
+            case BUSY:
+                return "ATM is busy, please retry.";
+            default:
+                return operation + " failed. Please try again later.";
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.atm.ui;
+
+import java.util.Scanner;
+
+/**
+ * Source of the lines typed at the ATM console (keyboard, session recorder, replay script, ...).
+ */
+public interface ConsoleInput {
+
+    /** Kinds of credential the console asks for; recorders must not store their values. */
+    enum Secret { CARD, PIN, TECH_CODE }
+
+    /** The next line without its terminator, or null once the input has ended. */
+    String readLine();
+
+    /** Like {@link #readLine()}, for a line holding a credential of the given kind. */
+    default String readSecret(Secret kind) {
+        return readLine();
+    }
+
+    static ConsoleInput console() {
+        Scanner sc = new Scanner(System.in);
+        return () -> sc.hasNextLine() ? sc.nextLine() : null;
+    }
+}
@@ -0,0 +1,90 @@
+package com.atm.ui;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A console session written by {@link SessionRecorder}.
+ *
+ * The file is line based: a header, then for every input the output shown before it
+ * ("O text") and the input itself with the user's think time ("I millis text"), and a last
+ * "O" line with the output after the final input. Text is escaped so it fits on one line.
+ *
+ * Credentials are never stored. A credential input is written as a placeholder naming its
+ * kind and the order in which the session first used that value ("S millis {PIN.1}"), and
+ * later output showing the value, such as the card number on the balance screen, shows the
+ * placeholder instead. {@link SessionReplayer} puts real credentials back in.
+ */
+public record RecordedSession(String name, List<Step> steps, String finalOutput) {
+
+    static final String HEADER = "# atm-session v2";
+
+    /**
+     * Output shown before an input, the time the user took to answer, and the answer; for a
+     * secret step the answer is its placeholder.
+     */
+    public record Step(String output, long thinkMillis, String input, boolean secret) {}
+
+    public static RecordedSession load(Path file) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        String output = null;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                throw new IOException("Not a recorded session: " + file);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("O ")) {
+                    output = unescape(line.substring(2));
+                } else if (line.startsWith("I ") || line.startsWith("S ")) {
+                    int space = line.indexOf(' ', 2);
+                    if (output == null || space < 0) {
+                        throw new IOException("Malformed input line in " + file + ": " + line);
+                    }
+                    steps.add(new Step(output, Long.parseLong(line.substring(2, space)),
+                        unescape(line.substring(space + 1)), line.charAt(0) == 'S'));
+                    output = null;
+                } else if (!line.isEmpty()) {
+                    throw new IOException("Malformed line in " + file + ": " + line);
+                }
+            }
+        }
+        return new RecordedSession(file.getFileName().toString(), List.copyOf(steps), output == null ? "" : output);
+    }
+
+    /* ================= ESCAPING ================= */
+
+    static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = text.charAt(++i);
+            sb.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return sb.toString();
+    }
+}
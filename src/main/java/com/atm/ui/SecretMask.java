@@ -0,0 +1,52 @@
+package com.atm.ui;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The credentials seen in one session and their placeholders ("{CARD.1}", "{PIN.1}", ...).
+ * The recorder and the replayer register values in the same order, so both mask output the
+ * same way and recorded and replayed screens can be compared.
+ */
+final class SecretMask {
+
+    private final Map<String, String> byKindAndValue = new HashMap<>();
+    private final Map<String, String> byValue = new LinkedHashMap<>();
+    private final int[] counts = new int[ConsoleInput.Secret.values().length];
+
+    /** The placeholder of a value, numbered in the order the session first used it. */
+    String placeholderFor(ConsoleInput.Secret kind, String value) {
+        String placeholder = byKindAndValue.get(kind + ":" + value);
+        if (placeholder == null) {
+            placeholder = "{" + kind + "." + ++counts[kind.ordinal()] + "}";
+            register(placeholder, value);
+        }
+        return placeholder;
+    }
+
+    /** Records the value a placeholder stands for. */
+    void register(String placeholder, String value) {
+        byKindAndValue.putIfAbsent(kindOf(placeholder) + ":" + value, placeholder);
+        if (!value.isEmpty()) {
+            byValue.putIfAbsent(value, placeholder);
+        }
+    }
+
+    /** Replaces every registered value in the text with its placeholder. */
+    String mask(String text) {
+        for (Map.Entry<String, String> entry : byValue.entrySet()) {
+            // Whole values only, so a card number inside an amount or another number stays
+            text = Pattern.compile("(?<![0-9A-Za-z])" + Pattern.quote(entry.getKey()) + "(?![0-9A-Za-z])")
+                .matcher(text)
+                .replaceAll(Matcher.quoteReplacement(entry.getValue()));
+        }
+        return text;
+    }
+
+    static ConsoleInput.Secret kindOf(String placeholder) {
+        return ConsoleInput.Secret.valueOf(placeholder.substring(1, placeholder.lastIndexOf('.')));
+    }
+}
@@ -0,0 +1,112 @@
+package com.atm.ui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records one console session for {@link SessionReplayer}.
+ *
+ * Wraps the real input and output: every line read is passed through and written to the
+ * session file together with the output shown before it and the time the user took to answer.
+ * Card numbers, PINs and the technician code are stored as placeholders and masked in the
+ * recorded output too (see {@link RecordedSession}). Output still reaches the console as
+ * usual. The file is written as the session goes, so a session cut short by a crash can still
+ * be replayed up to that point.
+ */
+public class SessionRecorder implements ConsoleInput, AutoCloseable {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final ConsoleInput input;
+    private final Transcript transcript;
+    private final SecretMask secrets = new SecretMask();
+    private final PrintStream output;
+    private final BufferedWriter writer;
+    private final Path file;
+
+    private SessionRecorder(ConsoleInput input, PrintStream console, Path file) throws IOException {
+        this.input = input;
+        this.transcript = new Transcript(console);
+        this.output = new PrintStream(transcript, true, StandardCharsets.UTF_8);
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(RecordedSession.HEADER);
+        writer.newLine();
+    }
+
+    /** Starts a new session file in the directory. */
+    public static SessionRecorder create(Path directory, ConsoleInput input, PrintStream console) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve("session-" + LocalDateTime.now().format(FILE_TIME)
+                + "-" + SEQUENCE.incrementAndGet() + ".txt");
+            return new SessionRecorder(input, console, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Stream the console UI should print to. */
+    public PrintStream output() {
+        return output;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized String readLine() {
+        return record(null);
+    }
+
+    @Override
+    public synchronized String readSecret(Secret kind) {
+        return record(kind);
+    }
+
+    private String record(Secret kind) {
+        String shown = secrets.mask(transcript.drain());
+        long start = System.nanoTime();
+        String line = kind == null ? input.readLine() : input.readSecret(kind);
+        if (line == null) {
+            return null;
+        }
+        long thinkMillis = (System.nanoTime() - start) / 1_000_000;
+
+        try {
+            writer.write("O " + RecordedSession.escape(shown));
+            writer.newLine();
+            if (kind == null) {
+                writer.write("I " + thinkMillis + " " + RecordedSession.escape(line));
+            } else {
+                writer.write("S " + thinkMillis + " " + secrets.placeholderFor(kind, line.trim()));
+            }
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return line;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.write("O " + RecordedSession.escape(secrets.mask(transcript.drain())));
+            writer.newLine();
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
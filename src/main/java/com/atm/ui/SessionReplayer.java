@@ -0,0 +1,298 @@
+package com.atm.ui;
+
+import com.atm.backup.LedgerBackup;
+import com.atm.db.DataInitializer;
+import com.atm.db.JpaManager;
+import com.atm.db.TransactionPartitions;
+import com.atm.model.Account;
+import com.atm.service.ATMService;
+import com.atm.service.ReceiptPrinter;
+
+import jakarta.persistence.EntityManager;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Replays recorded console sessions against the service, many at a time.
+ *
+ * Each session runs in its own {@link ATMConsoleUI} on a pool thread. Before every input the
+ * replay compares what the UI printed with what the recording showed at that point; the first
+ * difference stops the session and is reported as a divergence. Dates, times and the live
+ * session counters are masked before comparing, as they change from run to run.
+ *
+ * Think times are replayed divided by the speed factor (1 = original pace, 10 = ten times
+ * faster, 0 = no pauses). Replay is only deterministic when started from the same data
+ * (a {@link LedgerBackup} snapshot, or the fresh test data that main() seeds for "-") and
+ * when sessions running in parallel do not touch the same accounts or depend on the shared
+ * cash and supply levels.
+ *
+ * Recordings hold placeholders such as "{CARD.1}" instead of card numbers, PINs and the
+ * technician password. Each placeholder is looked up in the credentials (a properties file,
+ * "session-name.CARD.1" before "CARD.1"); a PIN with no entry is read from the restored data
+ * for the card entered last. The replayed output is masked with the same placeholders before
+ * comparing, and a placeholder that cannot be resolved is reported as a divergence.
+ */
+public class SessionReplayer {
+
+    private static final Pattern DATE_TIME =
+        Pattern.compile("\\d{4}-\\d{2}-\\d{2}([T ]\\d{2}:\\d{2}(:\\d{2}(\\.\\d+)?)?)?");
+    private static final Pattern SESSIONS = Pattern.compile("(?m)^Sessions: .*$");
+    private static final Pattern STARTING_UP = Pattern.compile("(?m)^Starting up, please wait\\.\\.\\.\\R");
+
+    private final ATMService service;
+    private final double speed;
+    private final int threads;
+    private final Properties credentials;
+
+    public SessionReplayer(ATMService service, double speed, int threads) {
+        this(service, speed, threads, new Properties());
+    }
+
+    public SessionReplayer(ATMService service, double speed, int threads, Properties credentials) {
+        this.service = service;
+        this.speed = speed;
+        this.threads = Math.max(1, threads);
+        this.credentials = credentials;
+    }
+
+    /** Outcome of replaying one session; divergence is null when it matched the recording. */
+    public record ReplayResult(String name, int stepsReplayed, int totalSteps, long elapsedMillis,
+                               String divergence) {
+
+        public boolean diverged() {
+            return divergence != null;
+        }
+    }
+
+    /** Replays the sessions and returns their results in the same order. */
+    public List<ReplayResult> replay(List<RecordedSession> sessions) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, sessions.size())));
+        try {
+            List<Future<ReplayResult>> futures = new ArrayList<>();
+            for (RecordedSession session : sessions) {
+                futures.add(pool.submit(() -> replay(session)));
+            }
+
+            List<ReplayResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    RecordedSession session = sessions.get(i);
+                    results.add(new ReplayResult(session.name(), 0, session.steps().size(), 0,
+                        "replay failed: " + e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Replay interrupted", e);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /* ================= SINGLE SESSION ================= */
+
+    private ReplayResult replay(RecordedSession session) {
+        Transcript transcript = new Transcript(null);
+        ScriptedInput input = new ScriptedInput(session, transcript);
+        ATMConsoleUI ui = new ATMConsoleUI(service, CompletableFuture.completedFuture(null), input,
+            new PrintStream(transcript, true, StandardCharsets.UTF_8));
+
+        long start = System.nanoTime();
+        ui.start();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        String divergence = input.divergence;
+        if (divergence == null && input.next < session.steps().size()) {
+            divergence = "session ended after " + input.next + " of " + session.steps().size() + " inputs";
+        }
+        if (divergence == null) {
+            divergence = compare("final output", session.finalOutput(), input.secrets.mask(transcript.drain()));
+        }
+        return new ReplayResult(session.name(), input.next, session.steps().size(), elapsed, divergence);
+    }
+
+    /** Feeds the recorded inputs and checks the output shown before each one. */
+    private final class ScriptedInput implements ConsoleInput {
+
+        private final RecordedSession session;
+        private final Transcript transcript;
+        private final SecretMask secrets = new SecretMask();
+        private String lastCard;
+        private int next;
+        private String divergence;
+
+        ScriptedInput(RecordedSession session, Transcript transcript) {
+            this.session = session;
+            this.transcript = transcript;
+        }
+
+        @Override
+        public String readLine() {
+            return next(null);
+        }
+
+        @Override
+        public String readSecret(Secret kind) {
+            return next(kind);
+        }
+
+        private String next(Secret kind) {
+            if (divergence != null || next == session.steps().size()) {
+                return null;
+            }
+            RecordedSession.Step step = session.steps().get(next);
+            String where = "before input " + (next + 1);
+            divergence = compare(where, step.output(), secrets.mask(transcript.drain()));
+            if (divergence == null && step.secret() != (kind != null)) {
+                divergence = where + ": expected " + (step.secret() ? "a credential" : "plain input")
+                    + " but the console asked for " + (kind != null ? kind : "plain input");
+            }
+            String line = step.input();
+            if (divergence == null && step.secret()) {
+                line = resolve(kind, step.input());
+            }
+            if (divergence != null) {
+                return null;
+            }
+            pause(step.thinkMillis());
+            next++;
+            return line;
+        }
+
+        /** The value behind a placeholder, or null (with a divergence) when it cannot be found. */
+        private String resolve(Secret kind, String placeholder) {
+            if (SecretMask.kindOf(placeholder) != kind) {
+                divergence = "input " + (next + 1) + ": recorded " + placeholder
+                    + " but the console asked for " + kind;
+                return null;
+            }
+            String key = placeholder.substring(1, placeholder.length() - 1);
+            String value = credentials.getProperty(session.name() + "." + key, credentials.getProperty(key));
+            if (value == null && kind == Secret.PIN && lastCard != null) {
+                value = pinOf(lastCard);
+            }
+            if (value == null) {
+                divergence = "input " + (next + 1) + ": no credential for " + placeholder;
+                return null;
+            }
+            secrets.register(placeholder, value);
+            if (kind == Secret.CARD) {
+                lastCard = value;
+            }
+            return value;
+        }
+    }
+
+    private static String pinOf(String card) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            List<String> pins = em.createNamedQuery(Account.FIND_PIN_BY_CARD, String.class)
+                .setParameter("card", card)
+                .getResultList();
+            return pins.isEmpty() ? null : pins.get(0);
+        } finally {
+            em.close();
+        }
+    }
+
+    private void pause(long thinkMillis) {
+        if (speed <= 0 || thinkMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep((long) (thinkMillis / speed));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String compare(String where, String recorded, String replayed) {
+        String expected = normalize(recorded);
+        String actual = normalize(replayed);
+        if (expected.equals(actual)) {
+            return null;
+        }
+        return where + ": expected \"" + RecordedSession.escape(expected)
+            + "\" but was \"" + RecordedSession.escape(actual) + "\"";
+    }
+
+    static String normalize(String output) {
+        String text = STARTING_UP.matcher(output.replace("\r\n", "\n")).replaceAll("");
+        text = SESSIONS.matcher(text).replaceAll("Sessions: *");
+        return DATE_TIME.matcher(text).replaceAll("*");
+    }
+
+    /* ================= COMMAND LINE ================= */
+
+    /**
+     * Usage: SessionReplayer snapshot|- speed threads session-file...
+     * Restores the snapshot (unless "-"), replays the sessions and exits with 1 on divergence.
+     * Credentials are read from the properties file named by -Datm.replay.credentials, if set.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: SessionReplayer <snapshot|-> <speed> <threads> <session-file>...");
+            System.exit(2);
+        }
+        // "-" starts from freshly seeded test data rather than whatever the database holds
+        JpaManager.bootstrap();
+        TransactionPartitions.ensure();
+        if (args[0].equals("-")) {
+            new LedgerBackup().clear();
+            DataInitializer.initializeTestData();
+        } else {
+            new LedgerBackup().restore(Path.of(args[0]));
+        }
+
+        List<RecordedSession> sessions = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            sessions.add(RecordedSession.load(Path.of(args[i])));
+        }
+
+        Properties credentials = new Properties();
+        String credentialsFile = System.getProperty("atm.replay.credentials");
+        if (credentialsFile != null) {
+            try (Reader reader = Files.newBufferedReader(Path.of(credentialsFile))) {
+                credentials.load(reader);
+            }
+        }
+
+        ATMService service = new ATMService(new ReceiptPrinter(receipt -> {}));
+        List<ReplayResult> results;
+        try {
+            results = new SessionReplayer(service, Double.parseDouble(args[1]), Integer.parseInt(args[2]),
+                credentials).replay(sessions);
+        } finally {
+            service.shutdown();
+        }
+
+        int diverged = 0;
+        for (ReplayResult result : results) {
+            System.out.printf("%-40s %d/%d inputs %6d ms %s%n", result.name(), result.stepsReplayed(),
+                result.totalSteps(), result.elapsedMillis(), result.diverged() ? "DIVERGED" : "ok");
+            if (result.diverged()) {
+                System.out.println("    " + result.divergence());
+                diverged++;
+            }
+        }
+        System.out.printf("%d sessions, %d diverged%n", results.size(), diverged);
+        System.exit(diverged == 0 ? 0 : 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.atm.ui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Console output collected between two reads, optionally passed on to another stream. */
+final class Transcript extends OutputStream {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final OutputStream delegate;
+
+    Transcript(OutputStream delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        buffer.write(b);
+        if (delegate != null) {
+            delegate.write(b);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        buffer.write(b, off, len);
+        if (delegate != null) {
+            delegate.write(b, off, len);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (delegate != null) {
+            delegate.flush();
+        }
+    }
+
+    /** Text written since the last call. */
+    synchronized String drain() {
+        String text = buffer.toString(StandardCharsets.UTF_8);
+        buffer.reset();
+        return text;
+    }
+}
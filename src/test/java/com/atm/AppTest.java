@@ -1,21 +1,62 @@
 package com.atm;
 
+import com.atm.archive.StatementEntry;
+import com.atm.archive.TransactionArchive;
+import com.atm.backup.LedgerBackup;
+import com.atm.batch.AccountJob;
+import com.atm.batch.BatchJobResult;
+import com.atm.batch.BatchJobRunner;
+import com.atm.db.DataInitializer;
 import com.atm.db.JpaManager;
 import com.atm.model.Account;
 import com.atm.model.ATMState;
+import com.atm.model.Cassette;
+import com.atm.model.Transaction;
+import com.atm.service.ATMBusyException;
 import com.atm.service.ATMService;
+import com.atm.service.ATMStatus;
+import com.atm.service.AdmissionController;
+import com.atm.service.BatchTransferResult;
+import com.atm.service.DailyReport;
+import com.atm.service.DispensePlanner;
+import com.atm.service.LoginResult;
+import com.atm.service.Outcome;
+import com.atm.service.ReceiptPrinter;
+import com.atm.service.TransferItem;
+import com.atm.ui.ATMConsoleUI;
+import com.atm.ui.RecordedSession;
+import com.atm.ui.SessionRecorder;
+import com.atm.ui.SessionReplayer;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AppTest {
@@ -38,41 +79,60 @@ public class AppTest {
         resetTestData();
     }
 
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
     @Test
     public void customerLoginTest() {
-        Account account = service.login("1111", "1111");
+        Account account = service.login("1111", "1111").getAccount();
         assertNotNull(account);
         assertEquals("1111", account.getCardNumber());
     }
 
+    @Test
+    public void operationsReportOutcomeCodes() {
+        LoginResult rejected = service.login("1111", "0000");
+        assertEquals(Outcome.INVALID_CREDENTIALS, rejected.getOutcome());
+        assertNull(rejected.getAccount());
+
+        Account account = service.login("1111", "1111").getAccount();
+        assertEquals(Outcome.INVALID_AMOUNT, service.deposit(account, -5.0));
+        assertEquals(Outcome.INSUFFICIENT_BALANCE, service.withdraw(account, 6000.0));
+        assertEquals(Outcome.ACCOUNT_NOT_FOUND, service.transfer(account, "9999", 10.0));
+        assertEquals(Outcome.SUCCESS, service.transfer(account, "2222", 10.0));
+        assertEquals(4990.0, account.getBalance(), 0.01);
+    }
+
     @Test
     public void withdrawTestBalanceDecreases() {
-        Account account = service.login("1111", "1111");
-        boolean success = service.withdraw(account, 200.0);
+        Account account = service.login("1111", "1111").getAccount();
+        boolean success = service.withdraw(account, 200.0).isSuccess();
 
         assertTrue(success);
-        Account refreshed = service.getAccountDetails(account.getAccountId());
+        Account refreshed = service.getAccountDetails(account.getAccountId()).getAccount();
         assertEquals(4800.0, refreshed.getBalance(), 0.01);
     }
 
     @Test
     public void depositTestBalanceIncreases() {
-        Account account = service.login("1111", "1111");
-        boolean success = service.deposit(account, 250.0);
+        Account account = service.login("1111", "1111").getAccount();
+        boolean success = service.deposit(account, 250.0).isSuccess();
 
         assertTrue(success);
-        Account refreshed = service.getAccountDetails(account.getAccountId());
+        Account refreshed = service.getAccountDetails(account.getAccountId()).getAccount();
         assertEquals(5250.0, refreshed.getBalance(), 0.01);
     }
 
     @Test
     public void transferTestBalancesChange() {
-        Account sender = service.login("1111", "1111");
-        boolean success = service.transfer(sender, "2222", 500.0);
+        Account sender = service.login("1111", "1111").getAccount();
+        boolean success = service.transfer(sender, "2222", 500.0).isSuccess();
 
         assertTrue(success);
 
-        Account refreshedSender = service.getAccountDetails(sender.getAccountId());
+        Account refreshedSender = service.getAccountDetails(sender.getAccountId()).getAccount();
         Account receiver = findAccountByCard("2222");
 
         assertEquals(4500.0, refreshedSender.getBalance(), 0.01);
@@ -81,8 +141,8 @@ public class AppTest {
 
     @Test
     public void balanceViewTest() {
-        Account account = service.login("1111", "1111");
-        Account refreshed = service.getAccountDetails(account.getAccountId());
+        Account account = service.login("1111", "1111").getAccount();
+        Account refreshed = service.getAccountDetails(account.getAccountId()).getAccount();
         assertEquals(5000.0, refreshed.getBalance(), 0.01);
         assertEquals(5000.0, service.getBalance(refreshed), 0.01);
     }
@@ -91,16 +151,492 @@ public class AppTest {
     public void technicianViewOnlyATMStatusTest() {
         ATMState before = getATMState();
 
-        String output = captureOutput(service::viewATMStatus);
+        ATMStatus status = service.viewATMStatus();
 
         ATMState after = getATMState();
 
-        assertTrue(output.contains("ATM STATUS"));
+        assertEquals(before.getCash(), status.cash(), 0.01);
+        assertEquals(4, status.cassettes().size());
         assertEquals(before.getCash(), after.getCash(), 0.01);
         assertEquals(before.getPaper(), after.getPaper());
         assertEquals(before.getInk(), after.getInk());
     }
 
+    @Test
+    public void batchTransferNetsAndReportsPerItem() {
+        List<TransferItem> items = List.of(
+            new TransferItem("ACC001", "ACC002", 1000.0),
+            new TransferItem("ACC002", "ACC001", 200.0),
+            new TransferItem("ACC001", "ACC999", 10.0),
+            new TransferItem("ACC002", "ACC001", 5000.0),
+            new TransferItem("ACC001", "ACC001", 10.0),
+            new TransferItem("ACC001", "ACC002", 300.0)
+        );
+
+        BatchTransferResult result = service.batchTransfer(items);
+
+        assertEquals(BatchTransferResult.Status.APPLIED, result.getStatus(0));
+        assertEquals(BatchTransferResult.Status.APPLIED, result.getStatus(1));
+        assertEquals(BatchTransferResult.Status.ACCOUNT_NOT_FOUND, result.getStatus(2));
+        assertEquals(BatchTransferResult.Status.INSUFFICIENT_FUNDS, result.getStatus(3));
+        assertEquals(BatchTransferResult.Status.INVALID, result.getStatus(4));
+        assertEquals(BatchTransferResult.Status.APPLIED, result.getStatus(5));
+
+        assertEquals(3900.0, service.getAccountDetails("ACC001").getAccount().getBalance(), 0.01);
+        assertEquals(4100.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+        assertEquals(6L, countTransactions());
+    }
+
+    @Test
+    public void batchTransferRevalidatesAgainstLockedBalances() throws Exception {
+        // Another session holds the payer's row and drains it while the batch waits for the lock
+        EntityManager em = JpaManager.getEntityManager();
+        em.getTransaction().begin();
+        Account payer = em.find(Account.class, "ACC001", LockModeType.PESSIMISTIC_WRITE);
+
+        CompletableFuture<BatchTransferResult> batch = CompletableFuture.supplyAsync(() ->
+            service.batchTransfer(List.of(new TransferItem("ACC001", "ACC002", 4000.0),
+                new TransferItem("ACC002", "ACC001", 10.0))));
+        Thread.sleep(200);
+        payer.setBalance(100.0);
+        em.getTransaction().commit();
+        em.close();
+
+        BatchTransferResult result = batch.get(10, TimeUnit.SECONDS);
+        assertEquals(BatchTransferResult.Status.INSUFFICIENT_FUNDS, result.getStatus(0));
+        assertEquals(BatchTransferResult.Status.APPLIED, result.getStatus(1));
+        assertEquals(110.0, service.getAccountDetails("ACC001").getAccount().getBalance(), 0.01);
+    }
+
+    @Test
+    public void batchJobResumesFromCheckpointAfterFailure() {
+        AtomicBoolean failOnce = new AtomicBoolean(true);
+        AccountJob flakyFee = new AccountJob() {
+            @Override
+            public String getTransactionType() {
+                return "FEE";
+            }
+
+            @Override
+            public double adjustment(Account account, double balance) {
+                if (account.getAccountId().equals("ACC002") && failOnce.getAndSet(false)) {
+                    throw new IllegalStateException("simulated crash");
+                }
+                return -10.0;
+            }
+        };
+        BatchJobRunner runner = new BatchJobRunner(1, 1, 1);
+
+        BatchJobResult first = runner.run("fee-test", flakyFee);
+        assertFalse(first.isComplete());
+        assertEquals(1, first.getAdjusted());
+
+        BatchJobResult resumed = runner.run("fee-test", flakyFee);
+        assertTrue(resumed.isComplete());
+        assertEquals(1, resumed.getAdjusted());
+
+        // Each account charged exactly once across both runs
+        assertEquals(4990.0, service.getAccountDetails("ACC001").getAccount().getBalance(), 0.01);
+        assertEquals(2990.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+        assertEquals(2L, countTransactions());
+    }
+
+    @Test
+    public void batchJobRunsPartitionsInParallel() {
+        BatchJobResult result = new BatchJobRunner(2, 2, 10).run("interest-test", AccountJob.interest(0.01));
+
+        assertTrue(result.isComplete());
+        assertEquals(2, result.getProcessed());
+        assertEquals(5050.0, service.getAccountDetails("ACC001").getAccount().getBalance(), 0.01);
+        assertEquals(3030.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+    }
+
+    @Test
+    public void hotAccountCreditsAreStripedAndCompacted() {
+        service.designateHotAccount("ACC002", 4);
+        Account sender = service.login("1111", "1111").getAccount();
+
+        assertTrue(service.transfer(sender, "2222", 500.0).isSuccess());
+        assertTrue(service.transfer(sender, "2222", 250.0).isSuccess());
+
+        // Row untouched, consolidated balance visible to reads
+        assertEquals(3000.0, findAccountByCard("2222").getBalance(), 0.01);
+        assertEquals(3750.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+
+        // Debits see the pending credits
+        Account merchant = service.login("2222", "2222").getAccount();
+        assertTrue(service.withdraw(merchant, 3500.0).isSuccess());
+        assertEquals(250.0, merchant.getBalance(), 0.01);
+
+        assertEquals(1, service.compactHotAccounts());
+        assertEquals(250.0, findAccountByCard("2222").getBalance(), 0.01);
+        assertEquals(250.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+
+        // Switching back folds what is pending instead of stranding it
+        assertTrue(service.transfer(sender, "2222", 100.0).isSuccess());
+        service.designateHotAccount("ACC002", 0);
+        assertEquals(350.0, findAccountByCard("2222").getBalance(), 0.01);
+        assertEquals(350.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+        assertEquals(0, service.compactHotAccounts());
+    }
+
+    @Test
+    public void batchJobAdjustsHotAccountsOnConsolidatedBalance() {
+        service.designateHotAccount("ACC002", 4);
+        Account sender = service.login("1111", "1111").getAccount();
+        assertTrue(service.transfer(sender, "2222", 1000.0).isSuccess());
+
+        assertTrue(new BatchJobRunner(1, 1, 10).run("interest-hot", AccountJob.interest(0.01)).isComplete());
+
+        // Interest on 3000 in the row plus 1000 pending, not on the row alone
+        assertEquals(4040.0, service.getAccountDetails("ACC002").getAccount().getBalance(), 0.01);
+        assertEquals(4040.0, service.getAccountDetails("ACC001").getAccount().getBalance(), 0.01);
+    }
+
+    @Test
+    public void statementReadsAcrossLiveAndArchivedPartitions(@TempDir Path archiveDir) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            Account account = em.find(Account.class, "ACC001");
+            for (int day = 1; day <= 3; day++) {
+                Transaction t = new Transaction();
+                t.setAccount(account);
+                t.setAmount(10.0 * day);
+                t.setType("WITHDRAW");
+                t.setTime(LocalDateTime.of(2024, 1, day, 9, 0));
+                t.setCreatedAt(LocalDateTime.of(2024, 1, day, 9, 0));
+                em.persist(t);
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        Account account = service.login("1111", "1111").getAccount();
+        assertTrue(service.deposit(account, 250.0).isSuccess());
+
+        TransactionArchive archive = new TransactionArchive(archiveDir);
+        assertEquals(3, archive.archiveBefore(YearMonth.now()));
+        assertEquals(1L, countTransactions());
+
+        List<StatementEntry> statement = archive.statement("ACC001",
+            LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.now().plusDays(1));
+        assertEquals(3, statement.size());
+        assertEquals(20.0, statement.get(0).amount(), 0.01);
+        assertEquals("WITHDRAW", statement.get(1).type());
+        assertEquals("DEPOSIT", statement.get(2).type());
+        assertTrue(archive.statement("ACC002", LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.now()).isEmpty());
+    }
+
+    @Test
+    public void dailyReportReadsIncrementalRollups() {
+        ReceiptPrinter printer = new ReceiptPrinter(receipt -> { });
+        ATMService terminal = new ATMService(printer);
+        try {
+            Account account = terminal.login("1111", "1111").getAccount();
+            assertTrue(terminal.deposit(account, 250.0).isSuccess());
+            assertTrue(terminal.withdraw(account, 200.0).isSuccess());
+            assertTrue(terminal.withdraw(account, 100.0).isSuccess());
+            assertTrue(terminal.transfer(account, "2222", 75.0).isSuccess());
+            assertTrue(terminal.batchTransfer(List.of(new TransferItem("ACC002", "ACC001", 30.0),
+                new TransferItem("ACC001", "ACC002", 20.0))).isFullyApplied());
+            assertEquals(Outcome.INSUFFICIENT_BALANCE, terminal.withdraw(account, 99_000.0));
+            terminal.printReceipt("WITHDRAW", 200.0, account.getBalance());
+            terminal.printReceipt("TRANSFER", 75.0, account.getBalance());
+            printer.flush();
+
+            DailyReport report = terminal.getDailyReport(LocalDate.now());
+            assertEquals(300.0, report.withdrawnAmount(), 0.01);
+            assertEquals(2, report.withdrawalCount());
+            assertEquals(250.0, report.depositedAmount(), 0.01);
+            assertEquals(1, report.depositCount());
+            assertEquals(125.0, report.transferredAmount(), 0.01);
+            assertEquals(3, report.transferCount());
+            assertEquals(2, report.receiptCount());
+
+            assertEquals(0, terminal.getDailyReport(LocalDate.now().minusDays(1)).withdrawalCount());
+        } finally {
+            terminal.shutdown();
+        }
+    }
+
+    @Test
+    public void binaryBackupRestoresLedger(@TempDir Path dir) throws Exception {
+        Account account = service.login("1111", "1111").getAccount();
+        assertTrue(service.deposit(account, 250.0).isSuccess());
+
+        Path file = dir.resolve("ledger.bin");
+        LedgerBackup backup = new LedgerBackup();
+        long exported = backup.export(file);
+
+        assertTrue(service.withdraw(account, 1000.0).isSuccess());
+        assertTrue(service.transfer(account, "2222", 100.0).isSuccess());
+
+        assertEquals(exported, backup.restore(file));
+        assertEquals(5250.0, findAccountByCard("1111").getBalance(), 0.01);
+        assertEquals(3000.0, findAccountByCard("2222").getBalance(), 0.01);
+        assertEquals(10250.0, getATMState().getCash(), 0.01);
+        assertEquals(1L, countTransactions());
+
+        // Identity continues after the restored ids
+        assertTrue(service.deposit(account, 10.0).isSuccess());
+        assertEquals(2L, countTransactions());
+
+        // A flipped byte is caught before anything is replaced
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IllegalStateException.class, () -> backup.restore(file));
+        assertEquals(2L, countTransactions());
+
+        // A block that fails to load after the tables were cleared rolls the whole restore back
+        Path broken = dir.resolve("broken.bin");
+        backup.export(broken);
+        byte[] valid = Files.readAllBytes(broken);
+        int endBlock = 13;
+        ByteBuffer spliced = ByteBuffer.allocate(valid.length + endBlock);
+        spliced.put(valid, 0, valid.length - endBlock);
+        spliced.put((byte) 99).putInt(0).putInt(0).putInt(0); // unknown table, empty payload
+        spliced.put(valid, valid.length - endBlock, endBlock);
+        Files.write(broken, spliced.array());
+        assertThrows(IllegalStateException.class, () -> backup.restore(broken));
+        assertEquals(5260.0, findAccountByCard("1111").getBalance(), 0.01);
+        assertEquals(2L, countTransactions());
+
+        // Clearing leaves empty tables that the test data can be seeded into again
+        backup.clear();
+        assertEquals(0L, countTransactions());
+        DataInitializer.initializeTestData();
+        assertEquals(5000.0, findAccountByCard("1111").getBalance(), 0.01);
+        assertTrue(service.deposit(findAccountByCard("1111"), 10.0).isSuccess());
+        assertEquals(1L, countTransactions());
+    }
+
+    @Test
+    public void sessionRecordsAndReplaysWithDivergenceDetection(@TempDir Path dir) throws Exception {
+        Path first = record(dir, "1", "1111", "1111", "2", "100", "no", "4", "5", "3");
+        Path second = record(dir, "1", "2222", "2222", "1", "200", "no", "4", "5", "3");
+
+        List<RecordedSession> sessions = List.of(RecordedSession.load(first), RecordedSession.load(second));
+        assertEquals(9, sessions.get(0).steps().size());
+        assertTrue(sessions.get(1).finalOutput().contains("Goodbye"));
+        assertFalse(Files.readString(first).contains("1111"));
+        assertFalse(Files.readString(second).contains("2222"));
+        assertEquals("{CARD.1}", sessions.get(0).steps().get(1).input());
+
+        // Without credentials the card cannot be entered
+        resetTestData();
+        SessionReplayer.ReplayResult blind = new SessionReplayer(service, 0, 1).replay(sessions).get(0);
+        assertTrue(blind.divergence().contains("no credential for {CARD.1}"), blind.divergence());
+
+        // Same starting data, both sessions in parallel on disjoint accounts; PINs from the data
+        resetTestData();
+        Properties credentials = new Properties();
+        credentials.setProperty(sessions.get(0).name() + ".CARD.1", "1111");
+        credentials.setProperty(sessions.get(1).name() + ".CARD.1", "2222");
+        SessionReplayer replayer = new SessionReplayer(service, 0, 2, credentials);
+        for (SessionReplayer.ReplayResult result : replayer.replay(sessions)) {
+            assertFalse(result.diverged(), result.divergence());
+            assertEquals(result.totalSteps(), result.stepsReplayed());
+        }
+
+        // A different starting balance shows up at the balance screen
+        resetTestData();
+        service.deposit(service.login("1111", "1111").getAccount(), 1.0);
+        List<SessionReplayer.ReplayResult> results = replayer.replay(sessions);
+        assertTrue(results.get(0).diverged());
+        assertTrue(results.get(0).divergence().contains("5101.00"), results.get(0).divergence());
+        assertEquals(7, results.get(0).stepsReplayed());
+        assertFalse(results.get(1).diverged(), results.get(1).divergence());
+    }
+
+    @Test
+    public void admissionControllerShedsAndPrioritizes() throws Exception {
+        AdmissionController admission = new AdmissionController(1, 1, 5000);
+        admission.acquire(AdmissionController.Priority.NORMAL);
+
+        // Queue has room for one: a low-priority waiter takes it
+        CompletableFuture<Void> low = CompletableFuture.runAsync(
+            () -> admission.acquire(AdmissionController.Priority.LOW));
+        while (admission.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+
+        // A high-priority arrival displaces it instead of being rejected
+        CompletableFuture<Void> high = CompletableFuture.runAsync(
+            () -> admission.acquire(AdmissionController.Priority.HIGH));
+        ExecutionException shed = assertThrows(ExecutionException.class, () -> low.get(5, TimeUnit.SECONDS));
+        assertTrue(shed.getCause() instanceof ATMBusyException);
+
+        // Queue full of high priority: further arrivals are rejected at once
+        assertThrows(ATMBusyException.class, () -> admission.acquire(AdmissionController.Priority.NORMAL));
+        assertEquals(2, admission.getShedCount());
+
+        admission.release();
+        high.get(5, TimeUnit.SECONDS);
+        assertEquals(1, admission.getActive());
+        assertEquals(0, admission.getQueueDepth());
+        admission.release();
+    }
+
+    @Test
+    public void shedOperationsAnswerBusy() {
+        System.setProperty("atm.admission.max.concurrent", "1");
+        System.setProperty("atm.admission.max.queue", "0");
+        ATMService busy = new ATMService(new ReceiptPrinter(receipt -> {}));
+        System.clearProperty("atm.admission.max.concurrent");
+        System.clearProperty("atm.admission.max.queue");
+        try {
+            Account account = busy.login("1111", "1111").getAccount();
+            busy.getAdmissionController().acquire(AdmissionController.Priority.HIGH);
+
+            assertEquals(Outcome.BUSY, busy.login("1111", "1111").getOutcome());
+            assertEquals(Outcome.BUSY, busy.deposit(account, 10.0));
+            assertEquals(Outcome.BUSY, busy.getAccountDetails("ACC001").getOutcome());
+            assertEquals(Outcome.BUSY, busy.getStatement("ACC001", LocalDateTime.now().minusDays(1),
+                LocalDateTime.now()).outcome());
+            assertEquals(Outcome.BUSY, busy.viewATMStatus().outcome());
+            assertEquals(Outcome.BUSY, busy.getDailyReport(LocalDate.now()).outcome());
+            assertEquals(BatchTransferResult.Status.BUSY,
+                busy.batchTransfer(List.of(new TransferItem("ACC001", "ACC002", 1.0))).getStatus(0));
+
+            busy.getAdmissionController().release();
+            assertTrue(busy.viewATMStatus().isSuccess());
+            assertEquals(Outcome.ACCOUNT_NOT_FOUND, busy.getAccountDetails("NOPE").getOutcome());
+        } finally {
+            busy.shutdown();
+        }
+    }
+
+    @Test
+    public void withdrawDispensesNotesFromCassettes() {
+        Account account = service.login("1111", "1111").getAccount();
+
+        assertEquals(Outcome.CANNOT_DISPENSE, service.withdraw(account, 15.0));
+        assertTrue(service.withdraw(account, 380.0).isSuccess());
+
+        double value = 0;
+        for (Cassette cassette : getCassettes()) {
+            value += cassette.getValue();
+        }
+        assertEquals(10000.0 - 380.0, value, 0.01);
+        assertEquals(10000.0 - 380.0, getATMState().getCash(), 0.01);
+    }
+
+    @Test
+    public void dispensePlannerBalancesCassettes() {
+        DispensePlanner planner = new DispensePlanner(new int[] {20, 50}, 1000);
+
+        // 60 can only be paid as three 20s
+        assertArrayEquals(new int[] {0, 3}, planner.plan(60, new int[] {10, 10}));
+        // Plenty of 20s and few 50s: prefer the 20s over draining the 50 cassette
+        assertArrayEquals(new int[] {0, 5}, planner.plan(100, new int[] {2, 50}));
+        // Not enough notes loaded
+        assertNull(planner.plan(100, new int[] {0, 4}));
+        // Not a multiple of the smallest note
+        assertNull(planner.plan(30, new int[] {10, 10}));
+    }
+
+    @Test
+    public void receiptsPrintAsynchronouslyAndBatchSupplies() {
+        List<String> printed = new CopyOnWriteArrayList<>();
+        ReceiptPrinter printer = new ReceiptPrinter(receipt -> printed.add(receipt.toString()));
+        ATMService asyncService = new ATMService(printer);
+
+        asyncService.printReceipt("WITHDRAW", 100.0, 4900.0);
+        asyncService.printReceipt("DEPOSIT", 50.0, 4950.0);
+        asyncService.printReceipt("TRANSFER", 25.0, 4925.0);
+        asyncService.shutdown();
+
+        ATMState state = getATMState();
+        assertEquals(3, printed.size());
+        assertTrue(printed.get(0).contains("WITHDRAW"));
+        assertTrue(printed.get(2).contains("4925.00"));
+        assertEquals(17, state.getPaper());
+        assertEquals(17, state.getInk());
+        assertEquals(0, printer.getPendingSupplies());
+    }
+
+    @Test
+    public void receiptPrinterSurvivesFailingOutput() {
+        List<String> printed = new CopyOnWriteArrayList<>();
+        ReceiptPrinter printer = new ReceiptPrinter(receipt -> {
+            if (receipt.toString().contains("JAMMED")) {
+                throw new IllegalStateException("Paper jam");
+            }
+            printed.add(receipt.toString());
+        });
+        try {
+            printer.submit("WITHDRAW", 100.0, 4900.0);
+            printer.submit("JAMMED", 50.0, 4850.0);
+            printer.submit("DEPOSIT", 25.0, 4875.0);
+            assertTrue(printer.flush());
+        } finally {
+            printer.close();
+        }
+
+        assertEquals(2, printed.size());
+        assertTrue(printed.get(1).contains("DEPOSIT"));
+        assertEquals(18, getATMState().getPaper());
+        assertEquals(0, printer.getPendingSupplies());
+    }
+
+    @Test
+    public void readReplicaServesReadsExceptAfterOwnWrite() {
+        System.setProperty("atm.persistence.unit.read", "atmTestReplicaPU");
+        try {
+            seedReplica();
+
+            // Never written on the primary: served by the replica
+            Account replicaOnly = service.getAccountDetails("ACC900").getAccount();
+            assertNotNull(replicaOnly);
+
+            // Own write just committed: served by the primary, not the stale replica copy
+            Account account = service.login("1111", "1111").getAccount();
+            assertTrue(service.withdraw(account, 200.0).isSuccess());
+            Account refreshed = service.getAccountDetails(account.getAccountId()).getAccount();
+            assertEquals(4800.0, refreshed.getBalance(), 0.01);
+        } finally {
+            System.clearProperty("atm.persistence.unit.read");
+        }
+    }
+
+    private void seedReplica() {
+        EntityManager em = JpaManager.getReadEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM Account").executeUpdate();
+
+            Account stale = new Account();
+            stale.setAccountId("ACC001");
+            stale.setCardNumber("1111");
+            stale.setPin("1111");
+            stale.setBalance(5000.0);
+
+            Account replicaOnly = new Account();
+            replicaOnly.setAccountId("ACC900");
+            replicaOnly.setCardNumber("9000");
+            replicaOnly.setPin("9000");
+            replicaOnly.setBalance(1.0);
+
+            em.persist(stale);
+            em.persist(replicaOnly);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private Path record(Path dir, String... lines) {
+        Iterator<String> script = List.of(lines).iterator();
+        SessionRecorder recorder = SessionRecorder.create(dir, () -> script.hasNext() ? script.next() : null,
+            null);
+        try (recorder) {
+            new ATMConsoleUI(service, CompletableFuture.completedFuture(null), recorder, recorder.output()).start();
+        }
+        return recorder.getFile();
+    }
+
     private void resetTestData() {
         EntityManager em = JpaManager.getEntityManager();
         try {
@@ -108,6 +644,10 @@ public class AppTest {
             em.createQuery("DELETE FROM Transaction").executeUpdate();
             em.createQuery("DELETE FROM Account").executeUpdate();
             em.createQuery("DELETE FROM ATMState").executeUpdate();
+            em.createQuery("DELETE FROM Cassette").executeUpdate();
+            em.createQuery("DELETE FROM BatchCheckpoint").executeUpdate();
+            em.createQuery("DELETE FROM BalanceDelta").executeUpdate();
+            em.createQuery("DELETE FROM DailyRollup").executeUpdate();
             em.getTransaction().commit();
 
             em.getTransaction().begin();
@@ -136,6 +676,11 @@ public class AppTest {
             em.persist(acc2);
             em.persist(atmState);
 
+            em.persist(new Cassette(100, 40));
+            em.persist(new Cassette(50, 60));
+            em.persist(new Cassette(20, 100));
+            em.persist(new Cassette(10, 100));
+
             em.getTransaction().commit();
         } finally {
             em.close();
@@ -166,15 +711,23 @@ public class AppTest {
         }
     }
 
-    private String captureOutput(Runnable action) {
-        PrintStream originalOut = System.out;
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+    private long countTransactions() {
+        EntityManager em = JpaManager.getEntityManager();
         try {
-            action.run();
-            return buffer.toString(StandardCharsets.UTF_8);
+            return em.createQuery("SELECT COUNT(t) FROM Transaction t", Long.class)
+                .getSingleResult();
         } finally {
-            System.setOut(originalOut);
+            em.close();
+        }
+    }
+
+    private List<Cassette> getCassettes() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            return em.createQuery("SELECT c FROM Cassette c", Cassette.class)
+                .getResultList();
+        } finally {
+            em.close();
         }
     }
 }
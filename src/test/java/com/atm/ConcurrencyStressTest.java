@@ -0,0 +1,322 @@
+package com.atm;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import com.atm.model.ATMState;
+import com.atm.model.Cassette;
+import com.atm.service.ATMService;
+import com.atm.service.DailyReport;
+import com.atm.service.Outcome;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many sessions calling withdraw, deposit and transfer at once on H2, followed by a check that
+ * no money was created or lost and that every Transaction row matches a balance change.
+ * Prints the throughput of each run so concurrency changes can be compared for speed too.
+ *
+ * Tune with -Datm.stress.threads=2,8,32 -Datm.stress.seconds=10 -Datm.stress.accounts=20.
+ * Operations in the first -Datm.stress.warmup.seconds are checked but not counted in ops/s.
+ */
+public class ConcurrencyStressTest {
+
+    private static final int WARMUP_SECONDS = Integer.getInteger("atm.stress.warmup.seconds", 1);
+    private static final int SECONDS = Integer.getInteger("atm.stress.seconds", 2);
+    private static final int ACCOUNTS = Integer.getInteger("atm.stress.accounts", 10);
+    private static final double OPENING_BALANCE = 2000.0;
+    private static final double ATM_CASH = 10000.0;
+
+    private static final int DEPOSIT = 0;
+    private static final int WITHDRAW = 1;
+    private static final int TRANSFER = 2;
+    private static final String[] OPERATIONS = {"deposit", "withdraw", "transfer"};
+
+    private ATMService service;
+
+    @BeforeAll
+    public static void useTestPersistenceUnit() {
+        System.setProperty("atm.persistence.unit", "atmTestPU");
+    }
+
+    @AfterAll
+    public static void clearTestPersistenceUnit() {
+        System.clearProperty("atm.persistence.unit");
+    }
+
+    @BeforeEach
+    public void setup() {
+        seed();
+        service = new ATMService();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    static IntStream threadCounts() {
+        return Arrays.stream(System.getProperty("atm.stress.threads", "2,8").split(","))
+            .mapToInt(s -> Integer.parseInt(s.trim()));
+    }
+
+    @ParameterizedTest(name = "{0} threads")
+    @MethodSource("threadCounts")
+    public void randomOperationsConserveMoney(int threads) throws Exception {
+        verify(run(threads, "plain"));
+    }
+
+    @ParameterizedTest(name = "{0} threads")
+    @MethodSource("threadCounts")
+    public void randomOperationsWithHotAccountConserveMoney(int threads) throws Exception {
+        service.designateHotAccount(accountId(0), 4);
+        service.startHotAccountCompactor(20);
+        verify(run(threads, "hot account"));
+    }
+
+    /* ================= LOAD ================= */
+
+    private Tally run(int threads, String label) throws InterruptedException {
+        List<Tally> tallies = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        long measureFrom = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long deadline = measureFrom + SECONDS * 1_000_000_000L;
+
+        for (int i = 0; i < threads; i++) {
+            Tally tally = new Tally();
+            tallies.add(tally);
+            SplittableRandom random = new SplittableRandom(31L * i + threads);
+            Thread t = new Thread(() -> {
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    operate(random, tally);
+                    if (now >= measureFrom) {
+                        tally.measured++;
+                    }
+                }
+            }, "stress-" + i);
+            workers.add(t);
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - measureFrom) / 1e9;
+
+        Tally total = new Tally();
+        tallies.forEach(total::add);
+        System.out.printf("%-11s %3d threads  %,9.0f ops/s  %s\n", label, threads, total.measured / seconds, total);
+        return total;
+    }
+
+    private void operate(SplittableRandom random, Tally tally) {
+        int from = random.nextInt(ACCOUNTS);
+        Account account = new Account();
+        account.setAccountId(accountId(from));
+        double amount = 10 * (1 + random.nextInt(20));
+
+        int operation = random.nextInt(3);
+        Outcome outcome;
+        if (operation == DEPOSIT) {
+            outcome = service.deposit(account, amount);
+        } else if (operation == WITHDRAW) {
+            outcome = service.withdraw(account, amount);
+        } else {
+            int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            outcome = service.transfer(account, cardNumber(to), amount);
+        }
+        tally.record(operation, outcome, amount);
+    }
+
+    /* ================= INVARIANTS ================= */
+
+    private void verify(Tally tally) {
+        assertEquals(0, tally.count(Outcome.FAILED), "operations failed: " + tally);
+        assertTrue(tally.successes[DEPOSIT] + tally.successes[WITHDRAW] + tally.successes[TRANSFER] > 0);
+
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            Map<String, Double> balances = new HashMap<>();
+            for (Account a : em.createQuery("SELECT a FROM Account a", Account.class).getResultList()) {
+                balances.put(a.getAccountId(), a.getBalance());
+            }
+            for (Object[] row : em.createQuery(
+                    "SELECT d.accountId, SUM(d.amount) FROM BalanceDelta d GROUP BY d.accountId", Object[].class)
+                    .getResultList()) {
+                balances.merge((String) row[0], (Double) row[1], Double::sum);
+            }
+            double cash = em.createQuery("SELECT a FROM ATMState a", ATMState.class).getSingleResult().getCash();
+            double cassettes = 0;
+            for (Cassette c : em.createQuery("SELECT c FROM Cassette c", Cassette.class).getResultList()) {
+                cassettes += c.getValue();
+            }
+
+            // Customer money minus ATM cash only changes by money created or destroyed
+            double customerMoney = balances.values().stream().mapToDouble(Double::doubleValue).sum();
+            assertEquals(ACCOUNTS * OPENING_BALANCE - ATM_CASH, customerMoney - cash, 0.001);
+            assertEquals(ATM_CASH + tally.amounts[DEPOSIT] - tally.amounts[WITHDRAW], cash, 0.001);
+            assertEquals(ATM_CASH - tally.amounts[WITHDRAW], cassettes, 0.001);
+
+            // Every balance is its opening balance plus its transaction rows
+            Map<String, Double> replayed = new HashMap<>();
+            Map<String, long[]> rowsByType = new HashMap<>();
+            Map<String, Double> amountByType = new HashMap<>();
+            for (Object[] row : em.createQuery(
+                    "SELECT t.account.accountId, t.type, t.amount FROM Transaction t", Object[].class)
+                    .getResultList()) {
+                String type = (String) row[1];
+                double amount = (Double) row[2];
+                double signed = type.equals("DEPOSIT") || type.equals("TRANSFER_IN") ? amount : -amount;
+                replayed.merge((String) row[0], signed, Double::sum);
+                rowsByType.computeIfAbsent(type, k -> new long[1])[0]++;
+                amountByType.merge(type, amount, Double::sum);
+            }
+            for (Map.Entry<String, Double> entry : balances.entrySet()) {
+                assertTrue(entry.getValue() >= 0, entry.getKey() + " is overdrawn");
+                assertEquals(OPENING_BALANCE + replayed.getOrDefault(entry.getKey(), 0.0), entry.getValue(), 0.001,
+                    entry.getKey() + " does not match its transactions");
+            }
+
+            // One row per successful operation (two for a transfer), and nothing else
+            assertEquals(tally.successes[DEPOSIT], rows(rowsByType, "DEPOSIT"));
+            assertEquals(tally.successes[WITHDRAW], rows(rowsByType, "WITHDRAW"));
+            assertEquals(tally.successes[TRANSFER], rows(rowsByType, "TRANSFER_OUT"));
+            assertEquals(tally.successes[TRANSFER], rows(rowsByType, "TRANSFER_IN"));
+            assertEquals(tally.amounts[TRANSFER], amountByType.getOrDefault("TRANSFER_OUT", 0.0), 0.001);
+            assertEquals(tally.amounts[TRANSFER], amountByType.getOrDefault("TRANSFER_IN", 0.0), 0.001);
+
+            // Rollups agree with the ledger
+            DailyReport report = service.getDailyReport(LocalDate.now());
+            assertEquals(tally.successes[DEPOSIT], report.depositCount());
+            assertEquals(tally.amounts[DEPOSIT], report.depositedAmount(), 0.001);
+            assertEquals(tally.successes[WITHDRAW], report.withdrawalCount());
+            assertEquals(tally.amounts[WITHDRAW], report.withdrawnAmount(), 0.001);
+            assertEquals(tally.successes[TRANSFER], report.transferCount());
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long rows(Map<String, long[]> rowsByType, String type) {
+        long[] count = rowsByType.get(type);
+        return count == null ? 0 : count[0];
+    }
+
+    // Outcomes and successful amounts seen by one thread, or merged for a run
+    private static final class Tally {
+
+        private final long[][] outcomes = new long[OPERATIONS.length][Outcome.values().length];
+        private final long[] successes = new long[OPERATIONS.length];
+        private final double[] amounts = new double[OPERATIONS.length];
+        private long measured;
+
+        void record(int operation, Outcome outcome, double amount) {
+            outcomes[operation][outcome.ordinal()]++;
+            if (outcome.isSuccess()) {
+                successes[operation]++;
+                amounts[operation] += amount;
+            }
+        }
+
+        void add(Tally other) {
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                for (int o = 0; o < outcomes[op].length; o++) {
+                    outcomes[op][o] += other.outcomes[op][o];
+                }
+                successes[op] += other.successes[op];
+                amounts[op] += other.amounts[op];
+            }
+            measured += other.measured;
+        }
+
+        long count(Outcome outcome) {
+            long total = 0;
+            for (long[] byOutcome : outcomes) {
+                total += byOutcome[outcome.ordinal()];
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                sb.append(OPERATIONS[op]).append(' ').append(successes[op]).append(" ok");
+                for (Outcome outcome : Outcome.values()) {
+                    long n = outcomes[op][outcome.ordinal()];
+                    if (n > 0 && !outcome.isSuccess()) {
+                        sb.append(", ").append(n).append(' ').append(outcome);
+                    }
+                }
+                sb.append(op < OPERATIONS.length - 1 ? "; " : "");
+            }
+            return sb.toString();
+        }
+    }
+
+    /* ================= DATA ================= */
+
+    private static String accountId(int i) {
+        return String.format("S%03d", i);
+    }
+
+    private static String cardNumber(int i) {
+        return String.format("9%03d", i);
+    }
+
+    private void seed() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM Transaction").executeUpdate();
+            em.createQuery("DELETE FROM Account").executeUpdate();
+            em.createQuery("DELETE FROM ATMState").executeUpdate();
+            em.createQuery("DELETE FROM Cassette").executeUpdate();
+            em.createQuery("DELETE FROM BatchCheckpoint").executeUpdate();
+            em.createQuery("DELETE FROM BalanceDelta").executeUpdate();
+            em.createQuery("DELETE FROM DailyRollup").executeUpdate();
+            em.getTransaction().commit();
+
+            em.getTransaction().begin();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                Account account = new Account();
+                account.setAccountId(accountId(i));
+                account.setCardNumber(cardNumber(i));
+                account.setPin("0000");
+                account.setBalance(OPENING_BALANCE);
+                em.persist(account);
+            }
+
+            ATMState atmState = new ATMState();
+            atmState.setCash(ATM_CASH);
+            atmState.setPaper(20);
+            atmState.setInk(20);
+            atmState.setFirmwareVersion("v1.0");
+            em.persist(atmState);
+
+            em.persist(new Cassette(100, 40));
+            em.persist(new Cassette(50, 60));
+            em.persist(new Cassette(20, 100));
+            em.persist(new Cassette(10, 100));
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
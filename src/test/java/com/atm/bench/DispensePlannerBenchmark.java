@@ -0,0 +1,48 @@
+package com.atm.bench;
+
+import com.atm.service.DispensePlanner;
+
+import java.util.Random;
+
+/**
+ * Measures dispense planning throughput against the precomputed tables.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.DispensePlannerBenchmark
+ */
+public class DispensePlannerBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int PLANS_PER_ROUND = 5_000_000;
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        DispensePlanner planner =
+            new DispensePlanner(DispensePlanner.STANDARD_DENOMINATIONS, DispensePlanner.DEFAULT_TABLE_LIMIT);
+        System.out.printf("Table build: %.1f ms\n", (System.nanoTime() - start) / 1e6);
+
+        // Pre-generate inputs so the loop only measures planning
+        Random random = new Random(42);
+        double[] amounts = new double[4096];
+        int[][] counts = new int[amounts.length][];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = 10 * (1 + random.nextInt(DispensePlanner.DEFAULT_TABLE_LIMIT / 10));
+            counts[i] = new int[] {random.nextInt(60), random.nextInt(80), random.nextInt(150), random.nextInt(150)};
+        }
+
+        for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+            long planned = 0;
+            long roundStart = System.nanoTime();
+            for (int i = 0; i < PLANS_PER_ROUND; i++) {
+                int j = i & (amounts.length - 1);
+                if (planner.plan(amounts[j], counts[j]) != null) {
+                    planned++;
+                }
+            }
+            double seconds = (System.nanoTime() - roundStart) / 1e9;
+            System.out.printf("%s: %,.0f plans/s (%d%% dispensable)\n",
+                round < WARMUP_ROUNDS ? "Warm-up" : "Measured",
+                PLANS_PER_ROUND / seconds, planned * 100 / PLANS_PER_ROUND);
+        }
+    }
+}
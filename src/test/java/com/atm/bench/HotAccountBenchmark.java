@@ -0,0 +1,121 @@
+package com.atm.bench;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import com.atm.model.ATMState;
+import com.atm.service.ATMService;
+import jakarta.persistence.EntityManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transfer throughput into a single receiver, as a normal account and as a hot account with
+ * striped credits, at 1 and 64 threads. Uses the H2 test persistence unit.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.HotAccountBenchmark
+ */
+public class HotAccountBenchmark {
+
+    private static final int MAX_THREADS = 64;
+    private static final int STRIPES = 16;
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long RUN_MILLIS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("atm.persistence.unit", "atmTestPU");
+        ATMService service = new ATMService();
+        PrintStream console = System.out;
+
+        for (boolean hot : new boolean[] {false, true}) {
+            for (int threads : new int[] {1, MAX_THREADS}) {
+                seed();
+                if (hot) {
+                    service.designateHotAccount("MERCHANT", STRIPES);
+                }
+
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                long[] result;
+                try {
+                    result = run(service, threads);
+                } finally {
+                    System.setOut(console);
+                }
+                console.printf("%-6s receiver, %2d threads: %,8.0f transfers/s (%d failed)\n",
+                    hot ? "hot" : "normal", threads, result[0] * 1000.0 / RUN_MILLIS, result[1]);
+            }
+        }
+        service.shutdown();
+    }
+
+    private static long[] run(ATMService service, int threads) throws InterruptedException {
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long measureFrom = System.currentTimeMillis() + WARMUP_MILLIS;
+        long deadline = measureFrom + RUN_MILLIS;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Account sender = service.getAccountDetails("S" + i).getAccount();
+            Thread t = new Thread(() -> {
+                long now;
+                while ((now = System.currentTimeMillis()) < deadline) {
+                    boolean success = service.transfer(sender, "9999", 1.0).isSuccess();
+                    if (now < measureFrom) {
+                        continue;
+                    }
+                    if (success) {
+                        ok.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(t);
+            t.start();
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        return new long[] {ok.get(), failed.get()};
+    }
+
+    private static void seed() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM Transaction").executeUpdate();
+            em.createQuery("DELETE FROM BalanceDelta").executeUpdate();
+            em.createQuery("DELETE FROM Account").executeUpdate();
+            em.createQuery("DELETE FROM ATMState").executeUpdate();
+
+            for (int i = 0; i < MAX_THREADS; i++) {
+                em.persist(account("S" + i, "S" + i, 1_000_000_000.0));
+            }
+            em.persist(account("MERCHANT", "9999", 0.0));
+
+            ATMState state = new ATMState();
+            state.setCash(10000.0);
+            state.setPaper(20);
+            state.setInk(20);
+            em.persist(state);
+
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Account account(String id, String card, double balance) {
+        Account account = new Account();
+        account.setAccountId(id);
+        account.setCardNumber(card);
+        account.setPin("0000");
+        account.setBalance(balance);
+        return account;
+    }
+}
@@ -0,0 +1,217 @@
+package com.atm.bench;
+
+import com.atm.backup.LedgerBackup;
+import com.atm.db.JpaManager;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.stream.Stream;
+
+/**
+ * Binary ledger backup/restore against a SQL dump of the same data. On H2 (the default, the
+ * test persistence unit) the dump is SCRIPT / RUNSCRIPT. On PostgreSQL, selected with
+ * -Datm.persistence.unit=atmPU, it is what pg_dump and psql do: text COPY out of every ledger
+ * table, and TRUNCATE plus text COPY in, in one transaction. The transaction count is the
+ * first argument.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.LedgerBackupBenchmark -Dexec.args=2000000
+ */
+public class LedgerBackupBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final String[] LEDGER_TABLES =
+        {"accounts", "atm_state", "cassettes", "balance_deltas", "transactions", "daily_rollups"};
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("atm.persistence.unit") == null) {
+            System.setProperty("atm.persistence.unit", "atmTestPU");
+        }
+        int transactions = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Path dir = Files.createTempDirectory("ledger-bench");
+        Path binary = dir.resolve("ledger.bin");
+
+        seed(transactions);
+        LedgerBackup backup = new LedgerBackup();
+        boolean postgres = isPostgreSQL();
+        Path dump = dir.resolve(postgres ? "ledger.copy" : "ledger.sql");
+        System.out.println(postgres ? "PostgreSQL, dump = text COPY" : "H2, dump = SCRIPT / RUNSCRIPT");
+
+        long start = System.nanoTime();
+        long rows = backup.export(binary);
+        report("Binary export", start, rows, binary);
+
+        start = System.nanoTime();
+        if (postgres) {
+            copyOut(dump);
+        } else {
+            sql("SCRIPT DROP TO '" + dump.toAbsolutePath() + "'");
+        }
+        report("SQL dump", start, rows, dump);
+
+        start = System.nanoTime();
+        backup.restore(binary);
+        report("Binary restore", start, rows, binary);
+
+        start = System.nanoTime();
+        if (postgres) {
+            copyIn(dump);
+        } else {
+            sql("RUNSCRIPT FROM '" + dump.toAbsolutePath() + "'");
+        }
+        report("SQL restore", start, rows, dump);
+
+        Files.deleteIfExists(binary);
+        if (postgres) {
+            for (String table : LEDGER_TABLES) {
+                Files.deleteIfExists(dump.resolve(table));
+            }
+        }
+        Files.deleteIfExists(dump);
+        Files.deleteIfExists(dir);
+    }
+
+    private static boolean isPostgreSQL() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            return em.unwrap(Session.class).doReturningWork(connection ->
+                connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL"));
+        } finally {
+            em.close();
+        }
+    }
+
+    // One COPY text file per table, like pg_dump's directory format
+    private static void copyOut(Path dump) throws IOException {
+        Files.createDirectories(dump);
+        work(connection -> {
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            for (String table : LEDGER_TABLES) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(dump.resolve(table)))) {
+                    copy.copyOut("COPY " + table + " TO STDOUT", out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static void copyIn(Path dump) {
+        work(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE TABLE " + String.join(", ", LEDGER_TABLES));
+            }
+            CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+            for (String table : LEDGER_TABLES) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(dump.resolve(table)))) {
+                    copy.copyIn("COPY " + table + " FROM STDIN", in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    private static void work(Work work) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(work);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void report(String label, long start, long rows, Path file) throws Exception {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long bytes = 0;
+        if (Files.isDirectory(file)) {
+            try (Stream<Path> files = Files.list(file)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    bytes += Files.size(f);
+                }
+            }
+        } else {
+            bytes = Files.size(file);
+        }
+        System.out.printf("%-15s %8.2f s  %,12.0f rows/s  %,8d KiB\n",
+            label, seconds, rows / seconds, bytes / 1024);
+    }
+
+    private static void sql(String command) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(command);
+                }
+            });
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void seed(int transactions) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DELETE FROM transactions");
+                    statement.execute("DELETE FROM balance_deltas");
+                    statement.execute("DELETE FROM accounts");
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO accounts (account_id, card_number, pin, balance, failedattempts) "
+                            + "VALUES (?, ?, ?, ?, 0)")) {
+                    for (int i = 0; i < ACCOUNTS; i++) {
+                        insert.setString(1, String.format("ACC%06d", i));
+                        insert.setString(2, String.format("%08d", i));
+                        insert.setString(3, "0000");
+                        insert.setDouble(4, 1000.0 + i);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO transactions (account_id, amount, type, time, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                    long base = System.currentTimeMillis();
+                    for (int i = 0; i < transactions; i++) {
+                        Timestamp ts = new Timestamp(base - i * 1000L);
+                        insert.setString(1, String.format("ACC%06d", i % ACCOUNTS));
+                        insert.setDouble(2, 10.0 + i % 500);
+                        insert.setString(3, i % 2 == 0 ? "WITHDRAW" : "DEPOSIT");
+                        insert.setTimestamp(4, ts);
+                        insert.setTimestamp(5, ts);
+                        insert.addBatch();
+                        if (i % 10_000 == 9_999) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            });
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
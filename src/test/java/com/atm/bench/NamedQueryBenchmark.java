@@ -0,0 +1,103 @@
+package com.atm.bench;
+
+import com.atm.db.JpaManager;
+import com.atm.model.Account;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.stat.Statistics;
+
+import java.util.function.BiFunction;
+
+/**
+ * Cost per call of building the login query from a JPQL string versus the named query,
+ * each on a fresh EntityManager as the service does, on the H2 test persistence unit.
+ * Prints Hibernate's query plan cache and statement counters for each phase.
+ *
+ * On H2 both cost the same: Hibernate caches the plan of a repeated JPQL string, and every
+ * call still prepares one JDBC statement. It does not measure the PostgreSQL driver's
+ * statement cache.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.NamedQueryBenchmark
+ */
+public class NamedQueryBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int WARMUP = 20_000;
+    private static final int CALLS = 200_000;
+
+    private static final String LOGIN_JPQL = "SELECT a FROM Account a WHERE a.cardNumber = :card AND a.pin = :pin";
+
+    public static void main(String[] args) {
+        System.setProperty("atm.persistence.unit", "atmTestPU");
+        System.setProperty("atm.statistics", "true");
+        seed();
+
+        BiFunction<EntityManager, Integer, TypedQuery<Account>> adHoc = (em, i) ->
+            em.createQuery(LOGIN_JPQL, Account.class)
+                .setParameter("card", "C" + i % ACCOUNTS)
+                .setParameter("pin", "1234");
+        BiFunction<EntityManager, Integer, TypedQuery<Account>> named = (em, i) ->
+            em.createNamedQuery(Account.FIND_BY_CARD_AND_PIN, Account.class)
+                .setParameter("card", "C" + i % ACCOUNTS)
+                .setParameter("pin", "1234");
+
+        for (int round = 0; round < 2; round++) {
+            measure("ad-hoc create", adHoc, false);
+            measure("named create", named, false);
+            measure("ad-hoc execute", adHoc, true);
+            measure("named execute", named, true);
+            System.out.println();
+        }
+    }
+
+    private static void measure(String label, BiFunction<EntityManager, Integer, TypedQuery<Account>> query,
+                                boolean execute) {
+        run(query, execute, WARMUP);
+
+        Statistics stats = JpaManager.getStatistics();
+        stats.clear();
+        long start = System.nanoTime();
+        run(query, execute, CALLS);
+        double nanosPerCall = (double) (System.nanoTime() - start) / CALLS;
+
+        long hits = stats.getQueryPlanCacheHitCount();
+        long misses = stats.getQueryPlanCacheMissCount();
+        System.out.printf("%-15s %8.0f ns/call  plan cache %8d hits %4d misses (%5.1f%%)  prepares/call %.2f\n",
+            label, nanosPerCall, hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses),
+            (double) stats.getPrepareStatementCount() / CALLS);
+    }
+
+    private static void run(BiFunction<EntityManager, Integer, TypedQuery<Account>> query, boolean execute,
+                            int calls) {
+        for (int i = 0; i < calls; i++) {
+            EntityManager em = JpaManager.getEntityManager();
+            try {
+                TypedQuery<Account> q = query.apply(em, i);
+                if (execute) {
+                    q.getResultList();
+                }
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    private static void seed() {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                Account account = new Account();
+                account.setAccountId("A" + i);
+                account.setCardNumber("C" + i);
+                account.setPin("1234");
+                account.setBalance(1000.0);
+                em.persist(account);
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.atm.bench;
+
+import com.atm.db.DataInitializer;
+import com.atm.db.JpaManager;
+import com.atm.service.ATMService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Today's terminal report from the rollups against the same totals computed with GROUP BY over
+ * the transactions table, as the ledger grows. Uses the H2 test persistence unit; the ledger
+ * sizes are the arguments. Seeded rows are inserted directly and bypass the rollups, so only the
+ * timings are comparable, not the totals.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.RollupReportBenchmark -Dexec.args="100000 1000000 3000000"
+ */
+public class RollupReportBenchmark {
+
+    private static final int CALLS = 50;
+
+    private static final String GROUP_BY =
+        "SELECT t.type, SUM(t.amount), COUNT(t) FROM Transaction t WHERE t.createdAt >= :from GROUP BY t.type";
+
+    public static void main(String[] args) {
+        System.setProperty("atm.persistence.unit", "atmTestPU");
+        long[] sizes = args.length == 0 ? new long[] {100_000, 1_000_000} : parse(args);
+
+        DataInitializer.initializeTestData();
+        ATMService service = new ATMService();
+        LocalDate today = LocalDate.now();
+
+        long seeded = 0;
+        for (long size : sizes) {
+            seed(seeded, size - seeded);
+            seeded = size;
+
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                service.getDailyReport(today);
+            }
+            double rollupMicros = (System.nanoTime() - start) / 1e3 / CALLS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS / 10; i++) {
+                groupBy(today);
+            }
+            double groupByMicros = (System.nanoTime() - start) / 1e3 / (CALLS / 10);
+
+            System.out.printf("%,12d transactions  rollup report %9.1f us  GROUP BY %,12.1f us\n",
+                size, rollupMicros, groupByMicros);
+        }
+        service.shutdown();
+    }
+
+    private static List<Object[]> groupBy(LocalDate day) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            return em.createQuery(GROUP_BY, Object[].class)
+                .setParameter("from", day.atStartOfDay())
+                .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    // Appends today's transactions for the seeded customers
+    private static void seed(long offset, long count) {
+        EntityManager em = JpaManager.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO transactions (account_id, amount, type, time, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                    Timestamp ts = Timestamp.valueOf(LocalDate.now().atStartOfDay().plusMinutes(1));
+                    for (long i = offset; i < offset + count; i++) {
+                        insert.setString(1, i % 2 == 0 ? "ACC001" : "ACC002");
+                        insert.setDouble(2, 10.0 + i % 500);
+                        insert.setString(3, i % 2 == 0 ? "WITHDRAW" : "DEPOSIT");
+                        insert.setTimestamp(4, ts);
+                        insert.setTimestamp(5, ts);
+                        insert.addBatch();
+                        if (i % 10_000 == 9_999) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+            });
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long[] parse(String[] args) {
+        long[] sizes = new long[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Long.parseLong(args[i]);
+        }
+        return sizes;
+    }
+}
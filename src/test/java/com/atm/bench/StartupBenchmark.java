@@ -0,0 +1,95 @@
+package com.atm.bench;
+
+import com.atm.core.ATMApplication;
+import com.atm.db.DataInitializer;
+import com.atm.service.ATMService;
+import com.atm.ui.ATMConsoleUI;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Time from main() to the first menu prompt and to the first completed deposit, driving the
+ * console UI with a scripted session on the H2 test persistence unit. Each mode needs a fresh
+ * JVM because a persistence unit is only bootstrapped once per process.
+ *
+ * Modes: sequential (bootstrap and seeding before the menu) or background (ATMApplication's
+ * startup). Add -Datm.warmup=false to leave out the warm-up.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.atm.bench.StartupBenchmark -Dexec.args=background
+ */
+public class StartupBenchmark {
+
+    private static final String SESSION = "1\n1111\n1111\n2\n100\nno\n5\n3\n";
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        System.setProperty("atm.persistence.unit", "atmTestPU");
+        String mode = args.length > 0 ? args[0] : "background";
+
+        PrintStream console = System.out;
+        InputStream stdin = System.in;
+        Timeline timeline = new Timeline(start);
+        System.setOut(new PrintStream(timeline, true, StandardCharsets.UTF_8));
+        System.setIn(new ByteArrayInputStream(SESSION.getBytes(StandardCharsets.UTF_8)));
+
+        ATMService service;
+        CompletableFuture<Void> ready;
+        if (mode.equals("sequential")) {
+            DataInitializer.initializeTestData();
+            service = new ATMService();
+            service.startHotAccountCompactor(5000);
+            ready = CompletableFuture.completedFuture(null);
+        } else {
+            service = new ATMService();
+            ready = ATMApplication.startInBackground(service);
+        }
+
+        try {
+            new ATMConsoleUI(service, ready).start();
+        } finally {
+            service.shutdown();
+            System.setOut(console);
+            System.setIn(stdin);
+        }
+
+        boolean warmUp = !mode.equals("sequential") && !"false".equalsIgnoreCase(System.getProperty("atm.warmup"));
+        console.printf("%-10s warm-up=%-5s first prompt %7.1f ms  first transaction %7.1f ms\n",
+            mode, warmUp, timeline.firstPromptMillis, timeline.firstTransactionMillis);
+    }
+
+    // Notes when the first prompt and the first deposit confirmation are written
+    private static final class Timeline extends OutputStream {
+
+        private final long start;
+        private final StringBuilder text = new StringBuilder();
+        private double firstPromptMillis = -1;
+        private double firstTransactionMillis = -1;
+
+        Timeline(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) {
+            text.append(new String(bytes, off, len, StandardCharsets.UTF_8));
+            double now = (System.nanoTime() - start) / 1e6;
+            if (firstPromptMillis < 0 && text.indexOf("Select: ") >= 0) {
+                firstPromptMillis = now;
+            }
+            if (firstTransactionMillis < 0 && text.indexOf("Deposit successful.") >= 0) {
+                firstTransactionMillis = now;
+            }
+        }
+    }
+}